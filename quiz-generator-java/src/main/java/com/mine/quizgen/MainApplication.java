@@ -1,7 +1,12 @@
 package com.mine.quizgen;
 
 import com.mine.quizgen.service.QuizOrchestrator;
+import com.mine.quizgen.service.ShardManager;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 public class MainApplication {
@@ -23,16 +28,66 @@ public class MainApplication {
             }
             
             String groqApiKey = props.getProperty("groq.api.key");
+            String mergeDirs = getArgValue(args, "--merge");
             
-            if (groqApiKey == null || groqApiKey.isEmpty() || groqApiKey.equals("your_groq_api_key_here")) {
+            // Merging shard outputs makes no API calls
+            if (mergeDirs == null && (groqApiKey == null || groqApiKey.isEmpty() || groqApiKey.equals("your_groq_api_key_here"))) {
                 System.err.println("❌ ERROR: Please set your Groq API key in src/main/resources/application.properties");
                 System.err.println("   Add: groq.api.key=your_actual_key_here");
                 System.exit(1);
             }
             
             // 2. Initialize and run the orchestrator
-            QuizOrchestrator orchestrator = new QuizOrchestrator(groqApiKey);
-            boolean success = orchestrator.runFullPipeline();
+            String outputDir = getArgValue(args, "--output");
+            QuizOrchestrator orchestrator = outputDir == null
+                ? new QuizOrchestrator(groqApiKey)
+                : new QuizOrchestrator(groqApiKey, "./inputs/article.json",
+                                       "./cleaned/article_cleaned.txt", outputDir);
+            orchestrator.setSimilarityThreshold(
+                Double.parseDouble(props.getProperty("similarity.threshold", "0.85")));
+            orchestrator.setDailyRequestLimit(
+                Integer.parseInt(props.getProperty("daily.request.limit", "10")));
+            orchestrator.setDailyTokenLimit(
+                Long.parseLong(props.getProperty("daily.token.limit", "0")));
+            orchestrator.setQuotaLedgerPath(props.getProperty("quota.ledger.path"));
+            orchestrator.setTieredGeneration(
+                Boolean.parseBoolean(props.getProperty("generation.tiered", "false")));
+            orchestrator.setRequestsPerMinute(
+                Integer.parseInt(props.getProperty("scheduler.requests.per.minute", "30")));
+            orchestrator.setMaxConcurrentRequests(
+                Integer.parseInt(props.getProperty("scheduler.max.concurrent", "4")));
+            String priority = getArgValue(args, "--priority");
+            orchestrator.setJobSchedule(priority != null ? Integer.parseInt(priority) : 0,
+                                        parseDeadline(getArgValue(args, "--deadline")));
+            String corpusPath = getArgValue(args, "--corpus");
+            String articleIds = getArgValue(args, "--ids");
+            String shard = getArgValue(args, "--shard");
+            String servePort = getArgValue(args, "--serve");
+            
+            boolean success;
+            if (servePort != null) {
+                success = orchestrator.runServer(Integer.parseInt(servePort), corpusPath,
+                    Integer.parseInt(props.getProperty("server.max.in.flight", "4")),
+                    Integer.parseInt(props.getProperty("server.max.waiting", "64")));
+            } else if (mergeDirs != null) {
+                success = orchestrator.runMerge(Arrays.asList(mergeDirs.split("\\s*,\\s*")), corpusPath);
+            } else if (shard != null) {
+                if (corpusPath == null) {
+                    System.err.println("❌ ERROR: --shard requires --corpus <path>");
+                    System.exit(1);
+                }
+                int[] shardSpec = ShardManager.parseShardSpec(shard);
+                success = orchestrator.runShardPipeline(corpusPath, shardSpec[0], shardSpec[1]);
+            } else if (corpusPath != null) {
+                if (articleIds == null || articleIds.isBlank()) {
+                    System.err.println("❌ ERROR: --corpus requires --ids id1,id2,...");
+                    System.exit(1);
+                }
+                List<String> ids = Arrays.asList(articleIds.split("\\s*,\\s*"));
+                success = orchestrator.runCorpusPipeline(corpusPath, ids);
+            } else {
+                success = orchestrator.runFullPipeline();
+            }
             
             if (success) {
                 System.out.println("\n✅ PROCESS COMPLETE SUCCESSFULLY");
@@ -47,4 +102,25 @@ public class MainApplication {
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+    
+    // Accepts minutes from now ("30") or an ISO-8601 instant ("2024-02-20T18:00:00Z")
+    private static Instant parseDeadline(String deadline) {
+        if (deadline == null) {
+            return null;
+        }
+        if (deadline.matches("\\d+")) {
+            return Instant.now().plus(Duration.ofMinutes(Long.parseLong(deadline)));
+        }
+        return Instant.parse(deadline);
+    }
+    
+    // Returns the value following a "--name" argument, or null if absent
+    private static String getArgValue(String[] args, String name) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+}
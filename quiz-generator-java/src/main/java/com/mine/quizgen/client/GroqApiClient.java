@@ -17,6 +17,10 @@ public class GroqApiClient {
         this.aiService = new GroqAIService(apiKey);
     }
     
+    public GroqApiClient(GroqAIService aiService) {
+        this.aiService = aiService;
+    }
+    
     /**
      * Generates a quiz from article data.
      * 
@@ -38,6 +42,17 @@ public class GroqApiClient {
         return aiService.generateFromArticleData(article, 2);
     }
     
+    /**
+     * Generates a quiz as concurrent sub-requests, one per difficulty tier.
+     * 
+     * @param article The article to generate a quiz from
+     * @param maxRetries Maximum number of retry attempts per tier
+     * @return The merged quiz
+     */
+    public Quiz generateQuizByTier(Article article, int maxRetries) {
+        return aiService.generateByDifficultyTiers(article, maxRetries);
+    }
+    
     /**
      * Gets the current usage statistics.
      * 
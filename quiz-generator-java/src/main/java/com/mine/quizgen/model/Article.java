@@ -27,7 +27,6 @@ public class Article {
     
     // Calculated fields (will be set during processing)
     private String cleanText;
-    private String fullText;
     private Integer originalLength;
     private Integer cleanedLength;
     private Integer tokenEstimate;
@@ -55,6 +54,31 @@ public class Article {
         return author != null ? author.getDisplayName() : null;
     }
     
+    // Text sent to the API, derived from title, subtitle and cleaned text
+    // rather than stored as a second copy of the article body
+    public String getFullText() {
+        StringBuilder fullTextBuilder = new StringBuilder(title != null ? title : "");
+        if (subtitle != null && !subtitle.isEmpty()) {
+            fullTextBuilder.append("\n\n").append(subtitle);
+        }
+        fullTextBuilder.append("\n\n").append(cleanText != null ? cleanText : "");
+        return fullTextBuilder.toString();
+    }
+    
+    // Length of getFullText() without building the string
+    public int getFullTextLength() {
+        int length = title != null ? title.length() : 0;
+        if (subtitle != null && !subtitle.isEmpty()) {
+            length += 2 + subtitle.length();
+        }
+        return length + 2 + (cleanText != null ? cleanText.length() : 0);
+    }
+    
+    // Drop the raw HTML once it has been cleaned
+    public void releaseHtmlBody() {
+        this.htmlBody = null;
+    }
+    
     // Helper method to get a display title with subtitle
     public String getFullTitle() {
         if (subtitle != null && !subtitle.isEmpty()) {
@@ -0,0 +1,59 @@
+package com.mine.quizgen.model;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+/**
+ * Fixed four-slot holder for the A-D answer options of a question.
+ * Serializes to the same {"A": ..., "B": ..., "C": ..., "D": ...} shape
+ * as the map it replaces, without a hash table per question.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)  // Extra options such as "E" are dropped, as the map lookup ignored them
+@JsonPropertyOrder({"A", "B", "C", "D"})
+public class Options {
+    @JsonProperty("A")
+    @JsonAlias("a")
+    private String a;
+    
+    @JsonProperty("B")
+    @JsonAlias("b")
+    private String b;
+    
+    @JsonProperty("C")
+    @JsonAlias("c")
+    private String c;
+    
+    @JsonProperty("D")
+    @JsonAlias("d")
+    private String d;
+    
+    // Default constructor for Jackson
+    public Options() {}
+    
+    public Options(String a, String b, String c, String d) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+    }
+    
+    // Helper method to look up an option by its letter
+    public String get(String letter) {
+        if (letter == null) {
+            return null;
+        }
+        switch (letter.trim().toUpperCase()) {
+            case "A": return a;
+            case "B": return b;
+            case "C": return c;
+            case "D": return d;
+            default: return null;
+        }
+    }
+}
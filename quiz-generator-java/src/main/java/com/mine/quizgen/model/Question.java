@@ -2,7 +2,6 @@ package com.mine.quizgen.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
-import java.util.Map;
 
 @Data
 public class Question {
@@ -13,7 +12,7 @@ public class Question {
     private String question;
     
     @JsonProperty("options")
-    private Map<String, String> options; // Keys: "A", "B", "C", "D"
+    private Options options; // Slots: "A", "B", "C", "D"
     
     @JsonProperty("correct_answer")
     private String correctAnswer;
@@ -24,9 +23,22 @@ public class Question {
     @JsonProperty("difficulty")
     private String difficulty; // "Easy", "Medium", "Hard"
     
+    // Share the canonical difficulty labels instead of one string per question
+    public void setDifficulty(String difficulty) {
+        if ("Easy".equalsIgnoreCase(difficulty)) {
+            this.difficulty = "Easy";
+        } else if ("Medium".equalsIgnoreCase(difficulty)) {
+            this.difficulty = "Medium";
+        } else if ("Hard".equalsIgnoreCase(difficulty)) {
+            this.difficulty = "Hard";
+        } else {
+            this.difficulty = difficulty;
+        }
+    }
+    
     // Helper methods
     public String getOption(String letter) {
-        return options != null ? options.get(letter.toUpperCase()) : null;
+        return options != null ? options.get(letter) : null;
     }
     
     public boolean isCorrect(String answer) {
@@ -2,11 +2,15 @@ package com.mine.quizgen.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.time.Instant;
 import java.util.List;
 
 @Data
+@JsonIgnoreProperties(ignoreUnknown = true)  // Saved quizzes include derived fields like "questionCount"
 public class Quiz {
     @JsonProperty("quiz_title")
     private String quizTitle;
@@ -28,11 +32,28 @@ public class Quiz {
     @JsonProperty("questions")
     private List<Question> questions;
     
+    // Set when the quiz was reused from a near-duplicate article
+    @JsonProperty("reused_from_article_id")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String reusedFromArticleId;
+    
+    @JsonProperty("reused_from_quiz")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String reusedFromQuiz;
+    
+    @JsonProperty("reuse_similarity")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double reuseSimilarity;
+    
     // Additional fields for our Java logic (not from API)
     private String apiProvider = "Groq";
     private boolean success = true;
     private String errorMessage;
     
+    // Set when the failure was a 429 that callers may retry later
+    @JsonIgnore
+    private boolean rateLimited;
+    
     // Helper method
     public int getQuestionCount() {
         return questions != null ? questions.size() : 0;
@@ -0,0 +1,47 @@
+package com.mine.quizgen.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ShardManifest {
+    @JsonProperty("shard_index")
+    private int shardIndex;
+
+    @JsonProperty("shard_count")
+    private int shardCount;
+
+    @JsonProperty("corpus")
+    private String corpus;
+
+    @JsonProperty("started_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant startedAt;
+
+    @JsonProperty("completed_at")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant completedAt;
+
+    @JsonProperty("assigned_ids")
+    private List<String> assignedIds = new ArrayList<>();
+
+    // Article id -> quiz file name, relative to the manifest's directory
+    @JsonProperty("completed")
+    private Map<String, String> completed = new LinkedHashMap<>();
+
+    @JsonProperty("failed_ids")
+    private List<String> failedIds = new ArrayList<>();
+
+    // Helper method
+    public String getShardLabel() {
+        return shardIndex + "/" + shardCount;
+    }
+}
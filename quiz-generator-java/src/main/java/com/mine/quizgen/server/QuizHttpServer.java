@@ -0,0 +1,304 @@
+package com.mine.quizgen.server;
+
+import com.mine.quizgen.client.GroqApiClient;
+import com.mine.quizgen.model.Article;
+import com.mine.quizgen.model.Quiz;
+import com.mine.quizgen.service.ArticleCleaner;
+import com.mine.quizgen.service.ArticleCorpusReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP front end for quiz generation.
+ *
+ * POST /quiz          article JSON in the body
+ * GET  /quiz?id=...   article looked up in the configured corpus
+ * GET  /health        usage and load
+ *
+ * Concurrent requests for the same article share one upstream call
+ * (single-flight). New upstream calls beyond maxInFlight, and waiting
+ * requests beyond maxWaiting, are rejected with 503 and Retry-After instead
+ * of queueing into Groq rate limits.
+ */
+public class QuizHttpServer {
+
+    private static final int MAX_BODY_BYTES = 5 * 1024 * 1024;
+    private static final long REQUEST_TIMEOUT_SECONDS = 180;
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private final GroqApiClient apiClient;
+    private final ArticleCorpusReader corpusReader;
+    private final ArticleCleaner articleCleaner = new ArticleCleaner();
+    private final ObjectMapper objectMapper;
+    private final int maxInFlight;
+    private final int maxWaiting;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Quiz>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger coalesced = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final ExecutorService upstreamExecutor;
+    private volatile boolean tieredGeneration = false;
+    private HttpServer server;
+
+    /**
+     * @param apiClient Client used for upstream generation
+     * @param corpusReader Corpus for GET /quiz?id=..., or null to accept only POSTed articles
+     * @param maxInFlight Maximum distinct upstream calls at once
+     * @param maxWaiting Maximum requests waiting on results, including coalesced ones
+     */
+    public QuizHttpServer(GroqApiClient apiClient, ArticleCorpusReader corpusReader,
+                          int maxInFlight, int maxWaiting) {
+        this.apiClient = apiClient;
+        this.corpusReader = corpusReader;
+        this.maxInFlight = maxInFlight;
+        this.maxWaiting = maxWaiting;
+        this.upstreamExecutor = Executors.newFixedThreadPool(maxInFlight);
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+    }
+
+    /**
+     * Generates each quiz as one sub-request per difficulty tier. A tiered
+     * call still counts once against maxInFlight.
+     */
+    public void setTieredGeneration(boolean tieredGeneration) {
+        this.tieredGeneration = tieredGeneration;
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/quiz", this::handleQuiz);
+        server.createContext("/health", this::handleHealth);
+        // Waiting requests hold a handler thread, so size the pool to the waiting limit
+        server.setExecutor(Executors.newFixedThreadPool(maxWaiting + 1));
+        server.start();
+        System.out.println("🌐 Quiz service listening on port " + getPort() +
+                         " (max in flight: " + maxInFlight + ", max waiting: " + maxWaiting + ")");
+    }
+
+    /**
+     * @return The bound port, e.g. after starting on port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            ((ExecutorService) server.getExecutor()).shutdown();
+        }
+        upstreamExecutor.shutdown();
+    }
+
+    private void handleQuiz(HttpExchange exchange) throws IOException {
+        try {
+            Article article;
+            if ("POST".equals(exchange.getRequestMethod())) {
+                article = readPostedArticle(exchange);
+            } else if ("GET".equals(exchange.getRequestMethod())) {
+                article = readCorpusArticle(exchange);
+            } else {
+                sendError(exchange, 405, "Use GET /quiz?id=... or POST /quiz");
+                return;
+            }
+            if (article == null) {
+                return;
+            }
+
+            if (waiting.incrementAndGet() > maxWaiting) {
+                waiting.decrementAndGet();
+                reject(exchange, "Too many waiting requests");
+                return;
+            }
+            try {
+                serveQuiz(exchange, article);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } catch (Exception e) {
+            System.out.println("❌ Request failed: " + e.getMessage());
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serveQuiz(HttpExchange exchange, Article article) throws Exception {
+        String key = requestKey(article);
+
+        // Join an existing upstream call for the same article, or start one
+        CompletableFuture<Quiz> created = new CompletableFuture<>();
+        CompletableFuture<Quiz> existing;
+        synchronized (inFlight) {
+            existing = inFlight.get(key);
+            if (existing == null) {
+                if (inFlight.size() >= maxInFlight) {
+                    reject(exchange, "Upstream capacity saturated");
+                    return;
+                }
+                inFlight.put(key, created);
+            }
+        }
+
+        CompletableFuture<Quiz> future;
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            exchange.getResponseHeaders().set("X-Quiz-Coalesced", "true");
+            future = existing;
+        } else {
+            upstreamExecutor.execute(() -> {
+                try {
+                    created.complete(tieredGeneration
+                        ? apiClient.generateQuizByTier(article, 2)
+                        : apiClient.generateQuiz(article));
+                } catch (Throwable t) {
+                    created.completeExceptionally(t);
+                } finally {
+                    synchronized (inFlight) {
+                        inFlight.remove(key, created);
+                    }
+                }
+            });
+            future = created;
+        }
+
+        Quiz quiz;
+        try {
+            quiz = future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            sendError(exchange, 504, "Timed out waiting for quiz generation");
+            return;
+        }
+
+        if (quiz.isSuccess()) {
+            sendJson(exchange, 200, quiz);
+        } else if (quiz.isRateLimited() || String.valueOf(quiz.getErrorMessage()).startsWith("Daily limit")) {
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            sendError(exchange, 429, quiz.getErrorMessage());
+        } else {
+            sendError(exchange, 502, quiz.getErrorMessage());
+        }
+    }
+
+    private Article readPostedArticle(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            sendError(exchange, 413, "Article body too large");
+            return null;
+        }
+
+        Article article = articleCleaner.extractFromJson(new String(body, StandardCharsets.UTF_8));
+        if (article.getId() == null || article.getCleanText() == null || article.getCleanText().isEmpty()) {
+            sendError(exchange, 400, "Body must be article JSON with an id and an HTML body");
+            return null;
+        }
+        return article;
+    }
+
+    private Article readCorpusArticle(HttpExchange exchange) throws IOException {
+        String articleId = queryParameter(exchange, "id");
+        if (articleId == null || articleId.isEmpty()) {
+            sendError(exchange, 400, "Missing id parameter");
+            return null;
+        }
+        if (corpusReader == null) {
+            sendError(exchange, 404, "No corpus configured; POST the article JSON instead");
+            return null;
+        }
+        Article article = corpusReader.readCleanedArticle(articleId);
+        if (article == null) {
+            sendError(exchange, 404, "Article not found: " + articleId);
+            return null;
+        }
+        return article;
+    }
+
+    // Same id and same cleaned text means the same upstream request. A 32-bit
+    // hash could let two different texts share one quiz, so use SHA-256.
+    static String requestKey(Article article) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(article.getFullText().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(article.getId()).append(':');
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, Object> health = new LinkedHashMap<>(apiClient.getUsage());
+            health.put("in_flight", inFlight.size());
+            health.put("max_in_flight", maxInFlight);
+            health.put("waiting", waiting.get());
+            health.put("max_waiting", maxWaiting);
+            health.put("coalesced_total", coalesced.get());
+            health.put("rejected_total", rejected.get());
+            sendJson(exchange, 200, health);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void reject(HttpExchange exchange, String reason) throws IOException {
+        rejected.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+        sendError(exchange, 503, reason);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("status", status);
+        error.put("error", message != null ? message : "Unknown error");
+        sendJson(exchange, status, error);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            if (key.equals(name)) {
+                return eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            }
+        }
+        return null;
+    }
+}
@@ -79,23 +79,17 @@ public class ArticleCleaner {
             // Clean the HTML body
             Article cleanedArticle = cleanHtmlContent(article.getHtmlBody());
             
-            // Prepare text for API
-            StringBuilder fullTextBuilder = new StringBuilder(article.getTitle());
-            if (article.getSubtitle() != null && !article.getSubtitle().isEmpty()) {
-                fullTextBuilder.append("\n\n").append(article.getSubtitle());
-            }
-            fullTextBuilder.append("\n\n").append(cleanedArticle.getCleanText());
-            
-            String fullText = fullTextBuilder.toString();
-            int tokenEstimate = fullText.length() / 4;
-            
             // Transfer all data to the article object
             article.setCleanText(cleanedArticle.getCleanText());
-            article.setFullText(fullText);
-            article.setTokenEstimate(tokenEstimate);
             article.setOriginalLength(cleanedArticle.getOriginalLength());
             article.setCleanedLength(cleanedArticle.getCleanedLength());
             
+            // Full text is derived on demand, so only its length is needed here
+            article.setTokenEstimate(article.getFullTextLength() / 4);
+            
+            // The raw HTML is no longer needed once cleaned
+            article.releaseHtmlBody();
+            
             return article;
             
         } catch (Exception e) {
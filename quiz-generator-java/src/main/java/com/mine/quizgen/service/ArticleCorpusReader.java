@@ -0,0 +1,304 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.Article;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Random-access reader over a JSON-lines article export.
+ * On first use it scans the corpus once and writes an id -> byte-offset index
+ * next to it ("<corpus>.idx"). Later lookups map only the requested records
+ * and decode them, instead of reading and parsing the whole export.
+ */
+public class ArticleCorpusReader implements Closeable {
+
+    private static final int INDEX_MAGIC = 0x51474958; // "QGIX"
+    private static final int INDEX_VERSION = 1;
+
+    private final Path corpusPath;
+    private final Path indexPath;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ArticleCleaner articleCleaner = new ArticleCleaner();
+    private final Map<String, Entry> index = new HashMap<>();
+    private FileChannel channel;
+
+    // Location of one record inside the corpus
+    private static final class Entry {
+        final long offset;
+        final int length;
+
+        Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    public ArticleCorpusReader(String corpusPath) throws IOException {
+        this(Paths.get(corpusPath), Paths.get(corpusPath + ".idx"));
+    }
+
+    public ArticleCorpusReader(Path corpusPath, Path indexPath) throws IOException {
+        this.corpusPath = corpusPath;
+        this.indexPath = indexPath;
+
+        if (!Files.exists(corpusPath)) {
+            throw new FileNotFoundException("Corpus not found: " + corpusPath);
+        }
+
+        if (!loadIndex()) {
+            buildIndex();
+            saveIndex();
+        }
+        this.channel = FileChannel.open(corpusPath, StandardOpenOption.READ);
+    }
+
+    /**
+     * Checks whether an article id is present in the corpus.
+     *
+     * @param articleId The article id
+     * @return true if the id was indexed
+     */
+    public boolean contains(String articleId) {
+        return index.containsKey(articleId);
+    }
+
+    /**
+     * Gets all indexed article ids.
+     *
+     * @return Unmodifiable view of the ids
+     */
+    public Set<String> getArticleIds() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Decodes a single article record without any cleaning.
+     *
+     * @param articleId The article id
+     * @return The article, or null if the id is not in the corpus
+     */
+    public Article readArticle(String articleId) throws IOException {
+        byte[] record = readRecord(articleId);
+        return record != null ? objectMapper.readValue(record, Article.class) : null;
+    }
+
+    /**
+     * Decodes a single article record and runs it through the ArticleCleaner,
+     * ready to be passed to the quiz generator.
+     *
+     * @param articleId The article id
+     * @return The cleaned article, or null if the id is not in the corpus
+     */
+    public Article readCleanedArticle(String articleId) throws IOException {
+        byte[] record = readRecord(articleId);
+        return record != null ? articleCleaner.extractFromJson(new String(record, StandardCharsets.UTF_8)) : null;
+    }
+
+    /**
+     * Decodes the requested articles, skipping ids that are not in the corpus.
+     *
+     * @param articleIds The article ids to load
+     * @return Cleaned articles in request order
+     */
+    public List<Article> readCleanedArticles(Collection<String> articleIds) throws IOException {
+        List<Article> articles = new ArrayList<>();
+        for (String articleId : articleIds) {
+            Article article = readCleanedArticle(articleId);
+            if (article != null) {
+                articles.add(article);
+            } else {
+                System.out.println("⚠️ Article not found in corpus: " + articleId);
+            }
+        }
+        return articles;
+    }
+
+    private byte[] readRecord(String articleId) throws IOException {
+        Entry entry = index.get(articleId);
+        if (entry == null) {
+            return null;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length);
+        byte[] record = new byte[entry.length];
+        buffer.get(record);
+        return record;
+    }
+
+    private boolean loadIndex() {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                System.out.println("⚠️ Ignoring unrecognized index: " + indexPath);
+                return false;
+            }
+
+            // Rebuild if the corpus changed since the index was written
+            long corpusSize = in.readLong();
+            long corpusModified = in.readLong();
+            if (corpusSize != Files.size(corpusPath)
+                    || corpusModified != Files.getLastModifiedTime(corpusPath).toMillis()) {
+                System.out.println("🔄 Corpus changed, rebuilding index: " + indexPath);
+                return false;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                long offset = in.readLong();
+                int length = in.readInt();
+                if (id.isEmpty() || offset < 0 || length <= 0 || offset + length > corpusSize) {
+                    System.out.println("⚠️ Corrupt entry in index " + indexPath + ", rebuilding");
+                    index.clear();
+                    return false;
+                }
+                index.put(id, new Entry(offset, length));
+            }
+
+            System.out.println("📇 Loaded corpus index with " + String.format("%,d", count) + " articles");
+            return true;
+
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not read index " + indexPath + ": " + e.getMessage());
+            index.clear();
+            return false;
+        }
+    }
+
+    private void buildIndex() throws IOException {
+        System.out.println("📇 Indexing corpus: " + corpusPath);
+        index.clear();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(corpusPath), 1 << 16)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(8192);
+            long position = 0;
+            long lineStart = 0;
+            int lineNumber = 0;
+            int b;
+
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b == '\n') {
+                    lineNumber++;
+                    indexLine(line, lineStart, lineNumber);
+                    line.reset();
+                    lineStart = position;
+                } else {
+                    line.write(b);
+                }
+            }
+            if (line.size() > 0) {
+                indexLine(line, lineStart, lineNumber + 1);
+            }
+        }
+
+        System.out.println("✅ Indexed " + String.format("%,d", index.size()) + " articles");
+    }
+
+    private void indexLine(ByteArrayOutputStream line, long lineStart, int lineNumber) {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+
+        // Trim CRLF line endings and blank lines
+        while (length > 0 && (bytes[length - 1] == '\r' || bytes[length - 1] == ' ')) {
+            length--;
+        }
+        if (length == 0) {
+            return;
+        }
+
+        String id = readTopLevelId(bytes, length);
+        if (id == null) {
+            System.out.println("⚠️ Skipping line " + lineNumber + ": no article id");
+            return;
+        }
+        if (index.put(id, new Entry(lineStart, length)) != null) {
+            System.out.println("⚠️ Duplicate article id " + id + " on line " + lineNumber + ", keeping the last one");
+        }
+    }
+
+    // Reads only the top-level "id" field, skipping over the rest of the record
+    private String readTopLevelId(byte[] bytes, int length) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(bytes, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field) && value != null && value.isScalarValue()) {
+                    return parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // Malformed line, reported by the caller
+        }
+        return null;
+    }
+
+    // Written to a temp file and moved into place, so processes indexing the
+    // same corpus concurrently never see a partially written index
+    private void saveIndex() {
+        Path parent = indexPath.toAbsolutePath().getParent();
+        Path tempPath = null;
+        try {
+            tempPath = Files.createTempFile(parent, indexPath.getFileName().toString(), ".tmp");
+            writeIndex(tempPath);
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("💾 Corpus index saved to: " + indexPath);
+        } catch (IOException e) {
+            // The in-memory index is still usable for this run
+            System.out.println("⚠️ Could not save index " + indexPath + ": " + e.getMessage());
+            if (tempPath != null) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch (IOException ignored) {
+                    // Best effort cleanup
+                }
+            }
+        }
+    }
+
+    private void writeIndex(Path target) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(Files.size(corpusPath));
+            out.writeLong(Files.getLastModifiedTime(corpusPath).toMillis());
+            out.writeInt(index.size());
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().offset);
+                out.writeInt(e.getValue().length);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
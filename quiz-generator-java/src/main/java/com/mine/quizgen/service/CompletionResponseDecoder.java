@@ -0,0 +1,197 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.Quiz;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Single-pass decoder for chat completion responses.
+ * Streams the HTTP body, binds the quiz straight from the parser's buffer for
+ * choices[0].message.content, and picks up the usage block on the way, without
+ * materializing the response as a Map or copying the content string.
+ */
+public class CompletionResponseDecoder {
+
+    private final ObjectMapper objectMapper;
+
+    // Quiz and token usage decoded from one response
+    @Data
+    public static class DecodedResponse {
+        private Quiz quiz;
+        private long promptTokens;
+        private long completionTokens;
+    }
+
+    public CompletionResponseDecoder(ObjectMapper objectMapper) {
+        // Models sometimes leave a trailing comma after the last question
+        this.objectMapper = objectMapper.copy();
+        this.objectMapper.enable(JsonReadFeature.ALLOW_TRAILING_COMMA.mappedFeature());
+    }
+
+    /**
+     * Decodes a successful completion response.
+     *
+     * @param body The response body stream
+     * @return The quiz and reported token usage
+     * @throws IOException if the response has no usable quiz JSON
+     */
+    public DecodedResponse decode(InputStream body) throws IOException {
+        DecodedResponse decoded = new DecodedResponse();
+        boolean sawChoice = false;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    sawChoice = readChoices(parser, decoded);
+                } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                    readUsage(parser, decoded);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (!sawChoice) {
+            throw new IOException("No choices in response");
+        }
+        if (decoded.getQuiz() == null) {
+            throw new IOException("No content in response");
+        }
+        return decoded;
+    }
+
+    // Decodes the first choice and skips the rest
+    private boolean readChoices(JsonParser parser, DecodedResponse decoded) throws IOException {
+        boolean first = true;
+        boolean sawChoice = false;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                        readMessage(parser, decoded);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                sawChoice = true;
+            } else {
+                parser.skipChildren();
+            }
+            first = false;
+        }
+        return sawChoice;
+    }
+
+    private void readMessage(JsonParser parser, DecodedResponse decoded) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("content".equals(field) && value == JsonToken.VALUE_STRING) {
+                // Bind from the parser's own buffer; valid until the next token
+                decoded.setQuiz(bindQuiz(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+            } else if ("content".equals(field)) {
+                throw new IOException("Empty content in response");
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readUsage(JsonParser parser, DecodedResponse decoded) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("prompt_tokens".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                decoded.setPromptTokens(parser.getLongValue());
+            } else if ("completion_tokens".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                decoded.setCompletionTokens(parser.getLongValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private Quiz bindQuiz(char[] buffer, int offset, int length) throws IOException {
+        int[] range = findJsonObject(buffer, offset, length);
+        if (range == null) {
+            String preview = new String(buffer, offset, Math.min(100, length));
+            throw new IOException("No valid JSON found in response: " + preview + "...");
+        }
+        try (JsonParser quizParser = objectMapper.getFactory()
+                .createParser(buffer, range[0], range[1] - range[0])) {
+            return objectMapper.readValue(quizParser, Quiz.class);
+        }
+    }
+
+    /**
+     * Finds the outermost JSON object in model output in one linear pass.
+     * Braces inside string literals are ignored, so markdown fences and chatty
+     * text before or after the object are skipped without regex backtracking.
+     * If the object is never closed (e.g. a truncated completion), falls back
+     * to the last closing brace.
+     *
+     * @return {start, end} with end exclusive, or null if there is no object
+     */
+    static int[] findJsonObject(char[] buffer, int offset, int length) {
+        int limit = offset + length;
+        int start = -1;
+        for (int i = offset; i < limit; i++) {
+            if (buffer[i] == '{') {
+                start = i;
+                break;
+            }
+        }
+        if (start < 0) {
+            return null;
+        }
+
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        int lastClose = -1;
+        for (int i = start; i < limit; i++) {
+            char c = buffer[i];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                lastClose = i;
+                if (--depth == 0) {
+                    return new int[]{start, i + 1};
+                }
+            }
+        }
+
+        // Unbalanced: keep the old first-'{'-to-last-'}' behaviour
+        if (lastClose < 0) {
+            for (int i = limit - 1; i > start; i--) {
+                if (buffer[i] == '}') {
+                    lastClose = i;
+                    break;
+                }
+            }
+        }
+        return lastClose > start ? new int[]{start, lastClose + 1} : null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.mine.quizgen.service;
 
 import com.mine.quizgen.model.Article;
+import com.mine.quizgen.model.Question;
 import com.mine.quizgen.model.Quiz;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -10,7 +11,12 @@ import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 public class GroqAIService {
@@ -25,32 +31,80 @@ public class GroqAIService {
         "llama-3.1-8b-instant"
     );
     
-    private int currentModelIndex = 0;
-    private int requestCount = 0;
-    private final int dailyLimit = 10;
+    private final AtomicInteger currentModelIndex = new AtomicInteger();
+    private final int dailyLimit;
+    private final long dailyTokenLimit;
     private final int retryDelay = 30;
     private final String apiKey;
-    private static final Pattern JSON_PATTERN = Pattern.compile("(\\{.*\\})", Pattern.DOTALL);
-    private static final Pattern MARKDOWN_PATTERN = Pattern.compile("```json\\s*|\\s*```");
+    private final QuotaLedger quotaLedger;
+    private final CompletionResponseDecoder responseDecoder;
+    
+    private static final int QUESTION_COUNT = 20;
+    private static final int MAX_COMPLETION_TOKENS = 3500;
+    private static final int TIER_TOKEN_MARGIN = 200;
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{Nd}]");
+    
+    // Questions per difficulty, in the order they appear in the merged quiz
+    private static final Map<String, Integer> DIFFICULTY_TIERS = new LinkedHashMap<>();
+    static {
+        DIFFICULTY_TIERS.put("Easy", 8);
+        DIFFICULTY_TIERS.put("Medium", 7);
+        DIFFICULTY_TIERS.put("Hard", 5);
+    }
+    
+    // Steers each tier toward different material to limit cross-tier overlap
+    private static final Map<String, String> TIER_FOCUS = Map.of(
+        "Easy", "Ask about key facts, names and definitions stated directly in the article.",
+        "Medium", "Ask about relationships, causes and comparisons between ideas in the article.",
+        "Hard", "Ask about implications, arguments and conclusions that require synthesizing several parts of the article."
+    );
     
     public GroqAIService(String apiKey) {
+        this(apiKey, QuotaLedger.forDefaultLocation(apiKey), 10);
+    }
+    
+    public GroqAIService(String apiKey, QuotaLedger quotaLedger, int dailyLimit) {
+        this(apiKey, quotaLedger, dailyLimit, 0);
+    }
+    
+    /**
+     * @param dailyTokenLimit Maximum prompt plus completion tokens per UTC day, or 0 for no limit
+     */
+    public GroqAIService(String apiKey, QuotaLedger quotaLedger, int dailyLimit, long dailyTokenLimit) {
         this.apiKey = apiKey;
+        this.quotaLedger = quotaLedger;
+        this.dailyLimit = dailyLimit;
+        this.dailyTokenLimit = dailyTokenLimit;
         // Configure ObjectMapper to handle Java 8 dates
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        this.responseDecoder = new CompletionResponseDecoder(objectMapper);
     }
     
     private String getCurrentModel() {
-        return modelPriority.get(currentModelIndex % modelPriority.size());
+        return modelPriority.get(currentModelIndex.get() % modelPriority.size());
     }
     
     private void rotateModel() {
-        currentModelIndex++;
+        currentModelIndex.incrementAndGet();
         System.out.println("🔄 Switching to model: " + getCurrentModel());
     }
     
     private String createEfficientPrompt(String articleText, String articleTitle, String articleId) {
+        return createPrompt(articleText, articleTitle, articleId, QUESTION_COUNT, null);
+    }
+    
+    /**
+     * Builds a quiz prompt. The article title and content come first and are
+     * identical for every prompt about the same article, so the tier requests
+     * share one prefix; everything that varies follows it.
+     *
+     * @param count Number of questions to ask for
+     * @param difficulty Single difficulty for a tier request, or null for the 8/7/5 mix
+     */
+    private String createPrompt(String articleText, String articleTitle, String articleId,
+                                int count, String difficulty) {
         if (articleText.length() > 12000) {
             articleText = articleText.substring(0, 12000) + "... [truncated]";
         }
@@ -58,19 +112,35 @@ public class GroqAIService {
         String titlePreview = articleTitle.length() > 40 ? 
             articleTitle.substring(0, 40) : articleTitle;
         
-        return "Create 20 multiple-choice questions from this article.\n\n" +
-               "ARTICLE TITLE: " + articleTitle + "\n" +
+        String countRule;
+        String difficultyRule;
+        String difficultyLevels;
+        if (difficulty == null) {
+            countRule = "1. Create EXACTLY " + count + " multiple-choice questions. Not " + (count - 1) +
+                        ", not " + (count + 1) + ". Exactly " + count + ".\n";
+            StringJoiner distribution = new StringJoiner(", ");
+            DIFFICULTY_TIERS.forEach((tier, tierCount) -> distribution.add(tierCount + " " + tier));
+            difficultyRule = "2. Difficulty distribution: " + distribution + ".\n";
+            difficultyLevels = "Easy, Medium, or Hard";
+        } else {
+            countRule = "1. Create EXACTLY " + count + " multiple-choice questions, all of " + difficulty + " difficulty.\n";
+            difficultyRule = "2. " + TIER_FOCUS.get(difficulty) + "\n";
+            difficultyLevels = difficulty;
+        }
+        
+        return "ARTICLE TITLE: " + articleTitle + "\n" +
                "ARTICLE CONTENT:\n" +
                articleText + "\n\n" +
+               "Create " + count + " multiple-choice questions from the article above.\n\n" +
                "INSTRUCTIONS - READ CAREFULLY:\n" +
-               "1. Create EXACTLY 20 multiple-choice questions. Not 19, not 21. Exactly 20.\n" +
-               "2. Difficulty distribution: 8 Easy, 7 Medium, 5 Hard.\n" +
+               countRule +
+               difficultyRule +
                "3. For EACH question, provide:\n" +
                "   - A clear, complete question text\n" +
                "   - 4 distinct options labeled A, B, C, D\n" +
                "   - The correct answer letter (A, B, C, or D)\n" +
                "   - A brief explanation (1-2 sentences)\n" +
-               "   - The difficulty level (Easy, Medium, or Hard)\n\n" +
+               "   - The difficulty level (" + difficultyLevels + ")\n\n" +
                "4. Base ALL questions SOLELY on the article content provided. Do not use external knowledge.\n" +
                "5. Format the output as a VALID JSON object with this EXACT structure:\n\n" +
                "{\n" +
@@ -84,31 +154,168 @@ public class GroqAIService {
                "      \"options\": {\"A\": \"Option A text\", \"B\": \"Option B text\", \"C\": \"Option C text\", \"D\": \"Option D text\"},\n" +
                "      \"correct_answer\": \"A\",\n" +
                "      \"explanation\": \"Brief explanation here.\",\n" +
-               "      \"difficulty\": \"Easy\"\n" +
+               "      \"difficulty\": \"" + (difficulty != null ? difficulty : "Easy") + "\"\n" +
                "    }\n" +
                "  ]\n" +
                "}\n\n" +
-               "CRITICAL: The \"questions\" array must contain exactly 20 objects. Output ONLY the JSON, no additional text, no markdown formatting, no code blocks.";
+               "CRITICAL: The \"questions\" array must contain exactly " + count + " objects. Output ONLY the JSON, no additional text, no markdown formatting, no code blocks.";
     }
     
     public Quiz generateFromArticleData(Article article, int maxRetries) {
-        if (requestCount >= dailyLimit) {
-            Quiz errorQuiz = new Quiz();
-            errorQuiz.setSuccess(false);
-            errorQuiz.setErrorMessage("Daily limit (" + dailyLimit + ") reached");
-            return errorQuiz;
-        }
-        
-        int retryCount = 0;
+        return generateFromArticleData(article, maxRetries, true);
+    }
+    
+    /**
+     * @param maxRetries Retries for failed calls, including the 400 -> next model fallback
+     * @param waitOnRateLimit false to return a rateLimited quiz on the first 429
+     *                        instead of backing off, for callers that schedule their own retry
+     */
+    public Quiz generateFromArticleData(Article article, int maxRetries, boolean waitOnRateLimit) {
         String prompt = createEfficientPrompt(
             article.getFullText(), 
             article.getTitle(),
             article.getId()
         );
+        return generateFromPrompt(article, prompt, MAX_COMPLETION_TOKENS, maxRetries, waitOnRateLimit,
+                                  new AtomicBoolean());
+    }
+    
+    /**
+     * Generates the quiz as one concurrent sub-request per difficulty tier
+     * (8 Easy, 7 Medium, 5 Hard), each with a proportionally smaller token
+     * budget, and merges them into one quiz with continuous ids.
+     * Latency is roughly that of the largest tier, at the cost of one
+     * request per tier against the daily limit. As soon as one tier fails the
+     * others are cancelled, make no further attempts, and the first failure
+     * is returned without waiting for them.
+     */
+    public Quiz generateByDifficultyTiers(Article article, int maxRetries) {
+        return generateByDifficultyTiers(article, maxRetries, true);
+    }
+    
+    // See generateFromArticleData(Article, int, boolean) for waitOnRateLimit
+    public Quiz generateByDifficultyTiers(Article article, int maxRetries, boolean waitOnRateLimit) {
+        ExecutorService executor = Executors.newFixedThreadPool(DIFFICULTY_TIERS.size());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<Quiz> firstFailure = new AtomicReference<>();
+        try {
+            Map<String, CompletableFuture<Quiz>> tierResults = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> tier : DIFFICULTY_TIERS.entrySet()) {
+                String prompt = createPrompt(article.getFullText(), article.getTitle(),
+                                             article.getId(), tier.getValue(), tier.getKey());
+                int maxTokens = MAX_COMPLETION_TOKENS * tier.getValue() / QUESTION_COUNT + TIER_TOKEN_MARGIN;
+                tierResults.put(tier.getKey(), CompletableFuture.supplyAsync(
+                    () -> generateFromPrompt(article, prompt, maxTokens, maxRetries, waitOnRateLimit, cancelled),
+                    executor));
+            }
+            
+            // Watch for failures only once every tier is submitted, so a fast
+            // failure cannot interfere with submitting the rest
+            List<CompletableFuture<Void>> watched = new ArrayList<>();
+            for (Map.Entry<String, CompletableFuture<Quiz>> tier : tierResults.entrySet()) {
+                watched.add(tier.getValue().handle((result, error) -> {
+                    Quiz tierQuiz = result;
+                    if (error != null) {
+                        if (cancelled.get()) {
+                            return null;  // Cancelled after a sibling failed
+                        }
+                        tierQuiz = new Quiz();
+                        tierQuiz.setSuccess(false);
+                        tierQuiz.setErrorMessage("Unexpected error: " + error.getMessage());
+                    }
+                    if (!tierQuiz.isSuccess() && firstFailure.compareAndSet(null, tierQuiz)) {
+                        tierQuiz.setErrorMessage(tier.getKey() + " tier failed: " + tierQuiz.getErrorMessage());
+                        // Stop the other tiers' retries and stop waiting for them
+                        cancelled.set(true);
+                        tierResults.values().forEach(future -> future.cancel(true));
+                    }
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(watched.toArray(new CompletableFuture<?>[0])).join();
+            if (firstFailure.get() != null) {
+                return firstFailure.get();
+            }
+            
+            Quiz merged = null;
+            Set<String> seenQuestions = new HashSet<>();
+            List<Question> questions = new ArrayList<>();
+            for (Map.Entry<String, CompletableFuture<Quiz>> tier : tierResults.entrySet()) {
+                Quiz tierQuiz = tier.getValue().join();
+                if (merged == null) {
+                    merged = tierQuiz;
+                }
+                if (tierQuiz.getQuestions() == null) {
+                    continue;
+                }
+                for (Question question : tierQuiz.getQuestions()) {
+                    if (question.getQuestion() == null || !seenQuestions.add(normalizeQuestion(question.getQuestion()))) {
+                        System.out.println("⚠️ Dropping duplicate question from " + tier.getKey() + " tier: " +
+                                         question.getQuestion());
+                        continue;
+                    }
+                    // The tier decides the difficulty, whatever the model labeled it
+                    question.setDifficulty(tier.getKey());
+                    question.setId(questions.size() + 1);
+                    questions.add(question);
+                }
+            }
+            
+            merged.setQuestions(questions);
+            System.out.println("🧩 Merged " + questions.size() + " questions from " + tierResults.size() + " tiers");
+            return merged;
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    // Backs off in short steps so a cancelled tier stops waiting promptly
+    private static void sleepUnlessCancelled(long millis, AtomicBoolean cancelled) {
+        long until = System.currentTimeMillis() + millis;
+        try {
+            while (!cancelled.get() && System.currentTimeMillis() < until) {
+                Thread.sleep(Math.min(250, until - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Requests made by one generateByDifficultyTiers call
+    static int tierCount() {
+        return DIFFICULTY_TIERS.size();
+    }
+    
+    // Lowercased letters and digits only, so trivial rewording of punctuation still matches
+    private static String normalizeQuestion(String question) {
+        return NON_ALPHANUMERIC.matcher(question.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+    
+    // Package-private so tests can stand in for the upstream call
+    Quiz generateFromPrompt(Article article, String prompt, int maxCompletionTokens, int maxRetries,
+                            boolean waitOnRateLimit, AtomicBoolean cancelled) {
+        int retryCount = 0;
         
         while (retryCount <= maxRetries) {
+            // Set when a sibling tier request has already failed
+            if (cancelled.get()) {
+                Quiz errorQuiz = new Quiz();
+                errorQuiz.setSuccess(false);
+                errorQuiz.setErrorMessage("Cancelled");
+                return errorQuiz;
+            }
             try {
                 String currentModel = getCurrentModel();
+                
+                // Every upstream call counts against the shared daily quota
+                if (!quotaLedger.tryAcquireRequest(currentModel, dailyLimit, dailyTokenLimit)) {
+                    Quiz errorQuiz = new Quiz();
+                    errorQuiz.setSuccess(false);
+                    errorQuiz.setErrorMessage("Daily limit (" + dailyLimit + " requests" +
+                        (dailyTokenLimit > 0 ? ", " + dailyTokenLimit + " tokens" : "") + ") reached");
+                    return errorQuiz;
+                }
+                
                 System.out.println("🤖 Using Groq model: " + currentModel + " (Attempt " + (retryCount + 1) + ")");
                 
                 // Escape JSON properly for the request
@@ -133,7 +340,7 @@ public class GroqAIService {
                     "}" +
                     "]," +
                     "\"temperature\": 0.7," +
-                    "\"max_completion_tokens\": 3500," +
+                    "\"max_completion_tokens\": " + maxCompletionTokens + "," +
                     "\"n\": 1" +
                     "}";
                 
@@ -149,9 +356,9 @@ public class GroqAIService {
                     .build();
                 
                 try (Response response = client.newCall(request).execute()) {
-                    String responseBody = response.body().string();
-                    
                     if (!response.isSuccessful()) {
+                        String responseBody = response.body().string();
+                        
                         // Try to extract more detailed error information
                         String errorDetail = "Status: " + response.code() + " " + response.message();
                         try {
@@ -170,41 +377,12 @@ public class GroqAIService {
                         throw new IOException("Unexpected response: " + errorDetail);
                     }
                     
-                    Map<String, Object> responseMap = objectMapper.readValue(responseBody, Map.class);
-                    
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> choices = (List<Map<String, Object>>) responseMap.get("choices");
-                    if (choices == null || choices.isEmpty()) {
-                        throw new IOException("No choices in response");
-                    }
-                    
-                    Map<String, Object> firstChoice = choices.get(0);
-                    Map<String, Object> message = (Map<String, Object>) firstChoice.get("message");
-                    String responseText = (String) message.get("content");
-                    
-                    requestCount++;
-                    
-                    // Clean response
-                    responseText = MARKDOWN_PATTERN.matcher(responseText).replaceAll("").trim();
-                    
-                    // Extract JSON
-                    Matcher jsonMatcher = JSON_PATTERN.matcher(responseText);
-                    if (jsonMatcher.find()) {
-                        responseText = jsonMatcher.group(1);
-                    } else {
-                        // If no JSON found, try to find any JSON-like structure
-                        int jsonStart = responseText.indexOf('{');
-                        int jsonEnd = responseText.lastIndexOf('}');
-                        if (jsonStart != -1 && jsonEnd != -1 && jsonEnd > jsonStart) {
-                            responseText = responseText.substring(jsonStart, jsonEnd + 1);
-                        } else {
-                            throw new IOException("No valid JSON found in response: " + 
-                                responseText.substring(0, Math.min(100, responseText.length())) + "...");
-                        }
-                    }
+                    // Decode content and usage in one pass over the body stream
+                    CompletionResponseDecoder.DecodedResponse decoded =
+                        responseDecoder.decode(response.body().byteStream());
+                    recordUsage(currentModel, decoded.getPromptTokens(), decoded.getCompletionTokens());
                     
-                    // Parse into Quiz object
-                    Quiz quiz = objectMapper.readValue(responseText, Quiz.class);
+                    Quiz quiz = decoded.getQuiz();
                     quiz.setModelUsed(currentModel);
                     quiz.setTokenEstimate(article.getTokenEstimate());
                     quiz.setApiProvider("Groq");
@@ -219,14 +397,10 @@ public class GroqAIService {
                 System.out.println("⚠️ Error: " + errorStr);
                 
                 // Check for rate limiting
-                if (errorStr != null && errorStr.contains("429") && retryCount < maxRetries) {
+                if (errorStr != null && errorStr.contains("429") && waitOnRateLimit && retryCount < maxRetries) {
                     int waitTime = retryDelay * (retryCount + 1);
                     System.out.println("⏳ Rate limited. Waiting " + waitTime + "s...");
-                    try {
-                        Thread.sleep(waitTime * 1000L);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                    }
+                    sleepUnlessCancelled(waitTime * 1000L, cancelled);
                     rotateModel();
                     retryCount++;
                     continue;
@@ -234,6 +408,7 @@ public class GroqAIService {
                     Quiz errorQuiz = new Quiz();
                     errorQuiz.setSuccess(false);
                     errorQuiz.setErrorMessage("Rate limit exceeded. Try again later.");
+                    errorQuiz.setRateLimited(true);
                     return errorQuiz;
                 }
                 // Check for 400 errors
@@ -287,12 +462,42 @@ public class GroqAIService {
         return filepath;
     }
     
+    public Quiz loadQuiz(String filepath) throws IOException {
+        return objectMapper.readValue(new File(filepath), Quiz.class);
+    }
+    
+    // Records provider-reported token usage; the request itself was counted on admission
+    private void recordUsage(String model, long promptTokens, long completionTokens) {
+        try {
+            quotaLedger.recordTokens(model, promptTokens, completionTokens);
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not record token usage: " + e.getMessage());
+        }
+    }
+    
     public Map<String, Object> getUsage() {
+        Map<String, Long> totals;
+        try {
+            totals = quotaLedger.getTodayTotals();
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not read quota ledger: " + e.getMessage());
+            totals = Map.of();
+        }
+        int requestsToday = totals.getOrDefault(QuotaLedger.REQUESTS, 0L).intValue();
+        
         Map<String, Object> usage = new HashMap<>();
-        usage.put("requests_today", requestCount);
+        usage.put("requests_today", requestsToday);
         usage.put("daily_limit", dailyLimit);
-        usage.put("remaining", dailyLimit - requestCount);
+        usage.put("remaining", Math.max(0, dailyLimit - requestsToday));
+        usage.put("prompt_tokens_today", totals.getOrDefault(QuotaLedger.PROMPT_TOKENS, 0L));
+        usage.put("completion_tokens_today", totals.getOrDefault(QuotaLedger.COMPLETION_TOKENS, 0L));
+        if (dailyTokenLimit > 0) {
+            long tokensToday = totals.getOrDefault(QuotaLedger.PROMPT_TOKENS, 0L)
+                + totals.getOrDefault(QuotaLedger.COMPLETION_TOKENS, 0L);
+            usage.put("daily_token_limit", dailyTokenLimit);
+            usage.put("tokens_remaining", Math.max(0, dailyTokenLimit - tokensToday));
+        }
         usage.put("provider", "Groq");
         return usage;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,276 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.Article;
+import com.mine.quizgen.model.Quiz;
+import lombok.Getter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deadline-aware dispatcher in front of GroqAIService.
+ * Jobs are dispatched earliest-deadline-first (jobs without a deadline go
+ * last), then by priority, then in submission order, and only when the
+ * request-rate bucket has a token. Up to maxConcurrent jobs run at once on a
+ * worker pool, so throughput is bounded by the bucket rather than by the
+ * latency of each call. A job that hits a 429 is put back with its original
+ * deadline and sequence number, so it keeps its place in line.
+ */
+public class QuizJobScheduler {
+
+    private static final Comparator<QuizJob> DISPATCH_ORDER = Comparator
+        .comparing(QuizJob::getDeadline, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(Comparator.comparingInt(QuizJob::getPriority).reversed())
+        .thenComparingLong(QuizJob::getSequence);
+
+    // Retries the service makes within one dispatch, for errors other than 429
+    private static final int DISPATCH_RETRIES = 2;
+
+    private final GroqAIService aiService;
+    private final int requestsPerMinute;
+    private final int maxConcurrent;
+    private final int maxAttempts;
+    private final long rateLimitBackoffMillis;
+    private boolean tieredGeneration = false;
+
+    private final PriorityQueue<QuizJob> queue = new PriorityQueue<>(DISPATCH_ORDER);
+    private final List<QuizJob> missedDeadlines = new ArrayList<>();
+    private long nextSequence = 0;
+    private int inFlight = 0;
+    private int dispatched = 0;
+    private int rateLimitedRequeues = 0;
+
+    // Token bucket state
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long pausedUntilNanos = 0;
+
+    // A queued quiz request and its outcome
+    @Getter
+    public static class QuizJob {
+        private final Article article;
+        private final int priority;
+        private final Instant deadline;
+        private final long sequence;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<Quiz> result = new CompletableFuture<>();
+        private int attempts;
+        private Instant completedAt;
+
+        QuizJob(Article article, int priority, Instant deadline, long sequence) {
+            this.article = article;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        public boolean isDeadlineMissed() {
+            return deadline != null && completedAt != null && completedAt.isAfter(deadline);
+        }
+    }
+
+    public QuizJobScheduler(GroqAIService aiService, int requestsPerMinute) {
+        this(aiService, requestsPerMinute, 4);
+    }
+
+    public QuizJobScheduler(GroqAIService aiService, int requestsPerMinute, int maxConcurrent) {
+        this(aiService, requestsPerMinute, maxConcurrent, 5, 30_000L);
+    }
+
+    public QuizJobScheduler(GroqAIService aiService, int requestsPerMinute, int maxConcurrent,
+                            int maxAttempts, long rateLimitBackoffMillis) {
+        if (requestsPerMinute < 1) {
+            throw new IllegalArgumentException("requestsPerMinute must be at least 1");
+        }
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.aiService = aiService;
+        this.requestsPerMinute = requestsPerMinute;
+        this.maxConcurrent = maxConcurrent;
+        this.maxAttempts = maxAttempts;
+        this.rateLimitBackoffMillis = rateLimitBackoffMillis;
+        this.tokens = requestsPerMinute;
+    }
+
+    /**
+     * Generates each job as one sub-request per difficulty tier. Each dispatch
+     * then takes one bucket token per tier.
+     */
+    public synchronized void setTieredGeneration(boolean tieredGeneration) {
+        this.tieredGeneration = tieredGeneration;
+    }
+
+    /**
+     * Queues an article for quiz generation.
+     *
+     * @param article The cleaned article
+     * @param priority Higher values dispatch first among jobs with the same deadline
+     * @param deadline Time the quiz is needed by, or null for bulk work
+     * @return The queued job; its result completes when the quiz is generated or fails
+     */
+    public synchronized QuizJob submit(Article article, int priority, Instant deadline) {
+        QuizJob job = new QuizJob(article, priority, deadline, nextSequence++);
+        queue.add(job);
+        notifyAll();
+        return job;
+    }
+
+    public QuizJob submit(Article article, int priority) {
+        return submit(article, priority, null);
+    }
+
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    public synchronized List<QuizJob> getMissedDeadlines() {
+        return new ArrayList<>(missedDeadlines);
+    }
+
+    /**
+     * Dispatches queued jobs on a worker pool until the queue is empty and no
+     * job is in flight. Jobs submitted while this runs are picked up in order.
+     */
+    public void runUntilEmpty() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(maxConcurrent);
+        try {
+            while (true) {
+                QuizJob job = takeNextJob();
+                if (job == null) {
+                    return;
+                }
+                workers.execute(() -> {
+                    try {
+                        dispatch(job);
+                    } finally {
+                        finishDispatch();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    // Waits for a free worker and a rate-limit token, then removes the most urgent job.
+    // Returns null once the queue is empty and no job can be re-queued by a 429.
+    private synchronized QuizJob takeNextJob() throws InterruptedException {
+        while (!queue.isEmpty() || inFlight > 0) {
+            if (queue.isEmpty() || inFlight >= maxConcurrent) {
+                wait();
+                continue;
+            }
+            long waitNanos = nanosUntilToken();
+            if (waitNanos <= 0) {
+                tokens -= requestsPerJob();
+                inFlight++;
+                dispatched++;
+                return queue.poll();
+            }
+            // Wake early if a more urgent job arrives; the head is re-read each time
+            wait(Math.max(1, waitNanos / 1_000_000));
+        }
+        return null;
+    }
+
+    private synchronized void finishDispatch() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private void dispatch(QuizJob job) {
+        job.attempts++;
+        Instant now = Instant.now();
+        if (job.getDeadline() != null && now.isAfter(job.getDeadline())) {
+            System.out.println("⏰ Dispatching job for " + job.getArticle().getId() + " after its deadline");
+        }
+
+        Quiz quiz;
+        try {
+            // The service keeps its own 400 -> next model fallback; 429s come back here
+            quiz = isTieredGeneration()
+                ? aiService.generateByDifficultyTiers(job.getArticle(), DISPATCH_RETRIES, false)
+                : aiService.generateFromArticleData(job.getArticle(), DISPATCH_RETRIES, false);
+        } catch (RuntimeException e) {
+            job.completedAt = Instant.now();
+            job.result.completeExceptionally(e);
+            return;
+        }
+
+        if (quiz.isRateLimited() && job.attempts < maxAttempts) {
+            // Back off and put the job back in its original place
+            synchronized (this) {
+                pausedUntilNanos = System.nanoTime() + rateLimitBackoffMillis * 1_000_000L;
+                tokens = 0;
+                rateLimitedRequeues++;
+                queue.add(job);
+            }
+            System.out.println("⏳ Rate limited, re-queued " + job.getArticle().getId() +
+                             " (attempt " + job.attempts + "/" + maxAttempts + ")");
+            return;
+        }
+
+        job.completedAt = Instant.now();
+        if (job.isDeadlineMissed()) {
+            synchronized (this) {
+                missedDeadlines.add(job);
+            }
+            System.out.println("⚠️ Missed deadline for " + job.getArticle().getId() + " by " +
+                             Duration.between(job.getDeadline(), job.completedAt).toMillis() + " ms");
+        }
+        job.result.complete(quiz);
+    }
+
+    private synchronized boolean isTieredGeneration() {
+        return tieredGeneration;
+    }
+
+    // Bucket tokens taken per dispatch, never more than the bucket can hold
+    private int requestsPerJob() {
+        return Math.min(requestsPerMinute, tieredGeneration ? GroqAIService.tierCount() : 1);
+    }
+
+    private long nanosUntilToken() {
+        long now = System.nanoTime();
+        if (now < pausedUntilNanos) {
+            return pausedUntilNanos - now;
+        }
+
+        // Refill continuously at requestsPerMinute, capped at one minute's worth
+        long refillFrom = Math.max(lastRefillNanos, pausedUntilNanos);
+        double refill = (now - refillFrom) * requestsPerMinute / 60_000_000_000.0;
+        tokens = Math.min(requestsPerMinute, tokens + Math.max(0, refill));
+        lastRefillNanos = now;
+
+        int needed = requestsPerJob();
+        if (tokens >= needed) {
+            return 0;
+        }
+        return (long) ((needed - tokens) * 60_000_000_000.0 / requestsPerMinute);
+    }
+
+    /**
+     * Gets a summary of the scheduler state.
+     *
+     * @return Map with queue state, dispatch counts and missed deadlines
+     */
+    public synchronized Map<String, Object> getReport() {
+        List<String> missed = new ArrayList<>();
+        for (QuizJob job : missedDeadlines) {
+            missed.add(job.getArticle().getId());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("queued", queue.size());
+        report.put("in_flight", inFlight);
+        report.put("requests_per_minute", requestsPerMinute);
+        report.put("max_concurrent", maxConcurrent);
+        report.put("dispatched", dispatched);
+        report.put("rate_limited_requeues", rateLimitedRequeues);
+        report.put("missed_deadlines", missed);
+        return report;
+    }
+}
@@ -1,11 +1,24 @@
 package com.mine.quizgen.service;
 
+import com.mine.quizgen.client.GroqApiClient;
 import com.mine.quizgen.model.Article;
 import com.mine.quizgen.model.Quiz;
 import com.mine.quizgen.model.Question;
+import com.mine.quizgen.model.ShardManifest;
+import com.mine.quizgen.server.QuizHttpServer;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
 public class QuizOrchestrator {
@@ -14,6 +27,16 @@ public class QuizOrchestrator {
     private final String inputJsonPath;
     private final String cleanedFilePath;
     private final String outputQuizPath;
+    private double similarityThreshold = 0.85;
+    private SimilarityIndex similarityIndex;
+    private int dailyRequestLimit = 10;
+    private long dailyTokenLimit = 0;
+    private String quotaLedgerPath;
+    private boolean tieredGeneration = false;
+    private int requestsPerMinute = 30;
+    private int maxConcurrentRequests = 4;
+    private int jobPriority = 0;
+    private Instant jobDeadline;
     
     public QuizOrchestrator(String groqApiKey, String inputJsonPath, 
                            String cleanedFilePath, String outputQuizPath) {
@@ -28,6 +51,130 @@ public class QuizOrchestrator {
              "./cleaned/article_cleaned.txt", "./outputs");
     }
     
+    /**
+     * Sets the minimum estimated similarity for reusing a stored quiz.
+     * A value above 1.0 disables reuse.
+     */
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+    
+    public void setDailyRequestLimit(int dailyRequestLimit) {
+        this.dailyRequestLimit = dailyRequestLimit;
+    }
+    
+    // Prompt plus completion tokens per day; 0 disables the token limit
+    public void setDailyTokenLimit(long dailyTokenLimit) {
+        this.dailyTokenLimit = dailyTokenLimit;
+    }
+    
+    /**
+     * Sets the shared quota ledger file. Defaults to ~/.quizgen/quota_ledger.json.
+     */
+    public void setQuotaLedgerPath(String quotaLedgerPath) {
+        this.quotaLedgerPath = quotaLedgerPath;
+    }
+    
+    /**
+     * Generates each difficulty tier as a concurrent sub-request instead of
+     * one 20-question completion. Uses three requests per article.
+     */
+    public void setTieredGeneration(boolean tieredGeneration) {
+        this.tieredGeneration = tieredGeneration;
+    }
+    
+    /**
+     * Sets the request rate and worker count used when a corpus or shard run
+     * dispatches its articles through the job scheduler.
+     */
+    public void setRequestsPerMinute(int requestsPerMinute) {
+        this.requestsPerMinute = requestsPerMinute;
+    }
+    
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+    
+    /**
+     * Sets the priority and deadline of the articles in a corpus or shard run.
+     * Runs with a deadline are dispatched ahead of bulk runs sharing the scheduler.
+     *
+     * @param jobPriority Higher values dispatch first among jobs with the same deadline
+     * @param jobDeadline Time the quizzes are needed by, or null for bulk work
+     */
+    public void setJobSchedule(int jobPriority, Instant jobDeadline) {
+        this.jobPriority = jobPriority;
+        this.jobDeadline = jobDeadline;
+    }
+    
+    private GroqAIService createAiService() {
+        QuotaLedger quotaLedger = quotaLedgerPath != null
+            ? new QuotaLedger(Paths.get(quotaLedgerPath), groqApiKey)
+            : QuotaLedger.forDefaultLocation(groqApiKey);
+        return new GroqAIService(groqApiKey, quotaLedger, dailyRequestLimit, dailyTokenLimit);
+    }
+    
+    private SimilarityIndex getSimilarityIndex() {
+        if (similarityIndex == null) {
+            similarityIndex = new SimilarityIndex(outputQuizPath + File.separator + "similarity_index.json");
+        }
+        return similarityIndex;
+    }
+    
+    private void saveSimilarityIndex() {
+        if (similarityIndex == null) {
+            return;
+        }
+        try {
+            similarityIndex.save();
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not save similarity index: " + e.getMessage());
+        }
+    }
+    
+    // Reuses the stored quiz of a near-duplicate article, if there is one
+    private Quiz findReusableQuiz(Article article, GroqAIService aiService) {
+        if (similarityThreshold > 1.0) {
+            return null;
+        }
+        SimilarityIndex.Match match = getSimilarityIndex()
+            .findSimilar(article.getCleanText(), similarityThreshold, article.getId());
+        if (match == null) {
+            return null;
+        }
+        
+        try {
+            Quiz source = aiService.loadQuiz(match.getQuizPath());
+            if (source.getQuestions() == null || source.getQuestions().isEmpty()) {
+                return null;
+            }
+            
+            Quiz quiz = adaptReusedQuiz(source, article, match);
+            quiz.setReusedFromQuiz(match.getQuizPath());
+            System.out.println("♻️ Reusing quiz from similar article " + match.getArticleId() +
+                             " (similarity " + String.format("%.2f", match.getSimilarity()) + ")");
+            return quiz;
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not load similar quiz " + match.getQuizPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Adapts another article's quiz to this article
+    private static Quiz adaptReusedQuiz(Quiz source, Article article, SimilarityIndex.Match match) {
+        Quiz quiz = new Quiz();
+        quiz.setQuizTitle(source.getQuizTitle());
+        quiz.setArticleId(article.getId());
+        quiz.setGeneratedAt(Instant.now());
+        quiz.setModelUsed(source.getModelUsed());
+        quiz.setTokenEstimate(article.getTokenEstimate());
+        quiz.setQuestions(source.getQuestions());
+        quiz.setApiProvider(source.getApiProvider());
+        quiz.setReusedFromArticleId(match.getArticleId());
+        quiz.setReuseSimilarity(match.getSimilarity());
+        return quiz;
+    }
+    
     private void cleanupTempFiles() {
         File cleanedFile = new File(cleanedFilePath);
         if (cleanedFile.exists()) {
@@ -69,58 +216,120 @@ public class QuizOrchestrator {
         }
     }
     
-    public boolean runFullPipeline() {
-        clearPyCache();
+    // Returns the saved quiz path, or null if generation or saving failed
+    private String generateAndSave(Article article, GroqAIService aiService) {
+        // 4. Generate Quiz
+        System.out.println("\n🎯 Generating 20-question quiz...");
+        System.out.println("   Using ~" + String.format("%,d", article.getTokenEstimate()) + " estimated tokens");
         
-        System.out.println("=".repeat(60));
-        System.out.println("QUIZ GENERATOR - CLEAN PIPELINE (GROQ - JAVA)");
-        System.out.println("=".repeat(60));
+        Quiz quiz = findReusableQuiz(article, aiService);
+        if (quiz == null) {
+            quiz = tieredGeneration
+                ? aiService.generateByDifficultyTiers(article, 2)
+                : aiService.generateFromArticleData(article, 2);
+        }
+        return saveAndReport(article, quiz, aiService);
+    }
+    
+    /**
+     * Generates quizzes for a batch of articles through the job scheduler,
+     * reusing stored quizzes of near-duplicates, and saves them in input order.
+     *
+     * @return Saved quiz paths by article id; failed articles are absent
+     */
+    private Map<String, String> generateAndSaveAll(List<Article> articles, GroqAIService aiService)
+            throws InterruptedException {
+        QuizJobScheduler scheduler = new QuizJobScheduler(aiService, requestsPerMinute, maxConcurrentRequests);
+        scheduler.setTieredGeneration(tieredGeneration);
         
-        // 1. Initialize services
-        ArticleCleaner articleCleaner = new ArticleCleaner();
-        GroqAIService aiService = new GroqAIService(groqApiKey);
+        // Near-duplicates within the batch wait on the first copy's job
+        // instead of making their own call
+        SimilarityIndex batchIndex = SimilarityIndex.inMemory();
+        Map<String, CompletableFuture<Quiz>> results = new LinkedHashMap<>();
+        Map<String, SimilarityIndex.Match> batchMatches = new LinkedHashMap<>();
+        int reused = 0;
+        int scheduled = 0;
+        for (Article article : articles) {
+            Quiz quiz = findReusableQuiz(article, aiService);
+            SimilarityIndex.Match match = quiz == null && similarityThreshold <= 1.0
+                ? batchIndex.findSimilar(article.getCleanText(), similarityThreshold, article.getId())
+                : null;
+            if (quiz != null) {
+                results.put(article.getId(), CompletableFuture.completedFuture(quiz));
+                reused++;
+            } else if (match != null) {
+                System.out.println("♻️ " + article.getId() + " will reuse the quiz of similar article " +
+                                 match.getArticleId() + " (similarity " + String.format("%.2f", match.getSimilarity()) + ")");
+                batchMatches.put(article.getId(), match);
+                results.put(article.getId(), results.get(match.getArticleId()).thenApply(source -> {
+                    if (!source.isSuccess()) {
+                        Quiz errorQuiz = new Quiz();
+                        errorQuiz.setSuccess(false);
+                        errorQuiz.setErrorMessage("Similar article " + match.getArticleId() + " failed: " +
+                                                  source.getErrorMessage());
+                        return errorQuiz;
+                    }
+                    return adaptReusedQuiz(source, article, match);
+                }));
+                reused++;
+            } else {
+                results.put(article.getId(), scheduler.submit(article, jobPriority, jobDeadline).getResult());
+                batchIndex.add(article.getId(), null, article.getCleanText());
+                scheduled++;
+            }
+        }
         
-        System.out.println("✅ Generator initialized");
-        System.out.println("   Provider: Groq");
+        System.out.println("\n🗓️ Scheduling " + scheduled + " quizzes at " + requestsPerMinute +
+                         " requests/minute, " + maxConcurrentRequests + " at a time (" + reused + " reused)");
+        scheduler.runUntilEmpty();
         
-        // 2. Check if input exists
-        File inputFile = new File(inputJsonPath);
-        if (!inputFile.exists()) {
-            System.out.println("❌ Input file not found: " + inputJsonPath);
-            System.out.println("   Please save your article JSON to: " + inputFile.getAbsolutePath());
-            return false;
+        Map<String, String> savedPaths = new LinkedHashMap<>();
+        for (Article article : articles) {
+            System.out.println("\n📄 Article " + article.getId() + ": " + article.getTitle());
+            Quiz quiz = joinResult(results.get(article.getId()));
+            SimilarityIndex.Match match = batchMatches.get(article.getId());
+            if (match != null && quiz.isSuccess()) {
+                // The first copy comes earlier in the batch, so it is already saved
+                quiz.setReusedFromQuiz(savedPaths.get(match.getArticleId()));
+            }
+            String savedPath = saveAndReport(article, quiz, aiService);
+            if (savedPath != null) {
+                savedPaths.put(article.getId(), savedPath);
+            }
         }
         
-        // 3. Process JSON -> Cleaned Text
-        System.out.println("\n📥 Loading article from: " + inputJsonPath);
-        Article article;
-        try {
-            article = articleCleaner.processAndSaveJson(inputJsonPath, cleanedFilePath);
-        } catch (IOException e) {
-            System.out.println("❌ Failed to process article: " + e.getMessage());
-            return false;
+        Map<String, Object> report = scheduler.getReport();
+        System.out.println("\n🗓️ Scheduler: " + report.get("dispatched") + " dispatches, " +
+                         report.get("rate_limited_requeues") + " re-queued after rate limits");
+        List<?> missed = (List<?>) report.get("missed_deadlines");
+        if (!missed.isEmpty()) {
+            System.out.println("⏰ Finished after the deadline " + jobDeadline + ": " + missed);
         }
-        
-        if (article.getId() == null || article.getId().equals("unknown")) {
-            System.out.println("❌ Failed to process article. Exiting.");
-            return false;
+        return savedPaths;
+    }
+    
+    private Quiz joinResult(CompletableFuture<Quiz> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Quiz errorQuiz = new Quiz();
+            errorQuiz.setSuccess(false);
+            errorQuiz.setErrorMessage("Unexpected error: " + e.getCause().getMessage());
+            return errorQuiz;
         }
-        
-        // 4. Generate Quiz
-        System.out.println("\n🎯 Generating 20-question quiz...");
-        System.out.println("   Using ~" + String.format("%,d", article.getTokenEstimate()) + " estimated tokens");
-        
-        Quiz quiz = aiService.generateFromArticleData(article, 2);
-        
+    }
+    
+    // Returns the saved quiz path, or null if the quiz failed or could not be saved
+    private String saveAndReport(Article article, Quiz quiz, GroqAIService aiService) {
         // 5. Handle Results
         if (!quiz.isSuccess()) {
             System.out.println("❌ Quiz generation failed: " + quiz.getErrorMessage());
-            return false;
+            return null;
         }
         
         if (quiz.getQuestions() == null || quiz.getQuestions().isEmpty()) {
             System.out.println("❌ No questions generated");
-            return false;
+            return null;
         }
         
         System.out.println("✅ Success! Generated " + quiz.getQuestions().size() + " questions");
@@ -138,12 +347,17 @@ public class QuizOrchestrator {
         }
         
         // 7. Save Quiz
+        String savedPath;
         try {
-            String savedPath = aiService.saveQuiz(quiz, outputQuizPath);
+            savedPath = aiService.saveQuiz(quiz, outputQuizPath);
             System.out.println("\n💾 Quiz saved to: " + savedPath);
+            
+            // Index the article so later reposts can reuse this quiz;
+            // the index file is written once per pipeline run
+            getSimilarityIndex().add(article.getId(), savedPath, article.getCleanText());
         } catch (IOException e) {
             System.out.println("❌ Failed to save quiz: " + e.getMessage());
-            return false;
+            return null;
         }
         
         // 8. Show Statistics
@@ -162,6 +376,52 @@ public class QuizOrchestrator {
             }
         }
         
+        return savedPath;
+    }
+    
+    public boolean runFullPipeline() {
+        clearPyCache();
+        
+        System.out.println("=".repeat(60));
+        System.out.println("QUIZ GENERATOR - CLEAN PIPELINE (GROQ - JAVA)");
+        System.out.println("=".repeat(60));
+        
+        // 1. Initialize services
+        ArticleCleaner articleCleaner = new ArticleCleaner();
+        GroqAIService aiService = createAiService();
+        
+        System.out.println("✅ Generator initialized");
+        System.out.println("   Provider: Groq");
+        
+        // 2. Check if input exists
+        File inputFile = new File(inputJsonPath);
+        if (!inputFile.exists()) {
+            System.out.println("❌ Input file not found: " + inputJsonPath);
+            System.out.println("   Please save your article JSON to: " + inputFile.getAbsolutePath());
+            return false;
+        }
+        
+        // 3. Process JSON -> Cleaned Text
+        System.out.println("\n📥 Loading article from: " + inputJsonPath);
+        Article article;
+        try {
+            article = articleCleaner.processAndSaveJson(inputJsonPath, cleanedFilePath);
+        } catch (IOException e) {
+            System.out.println("❌ Failed to process article: " + e.getMessage());
+            return false;
+        }
+        
+        if (article.getId() == null || article.getId().equals("unknown")) {
+            System.out.println("❌ Failed to process article. Exiting.");
+            return false;
+        }
+        
+        // 4-8. Generate, save and report
+        if (generateAndSave(article, aiService) == null) {
+            return false;
+        }
+        saveSimilarityIndex();
+        
         // 9. Cleanup
         cleanupTempFiles();
         
@@ -180,4 +440,214 @@ public class QuizOrchestrator {
         
         return true;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Regenerates quizzes for specific articles in a JSON-lines corpus export.
+     * Only the requested records are read, via the corpus id index.
+     */
+    public boolean runCorpusPipeline(String corpusPath, List<String> articleIds) {
+        System.out.println("=".repeat(60));
+        System.out.println("QUIZ GENERATOR - CORPUS RERUN (GROQ - JAVA)");
+        System.out.println("=".repeat(60));
+        
+        GroqAIService aiService = createAiService();
+        List<Article> articles = new ArrayList<>();
+        List<String> failedIds = new ArrayList<>();
+        try (ArticleCorpusReader corpusReader = new ArticleCorpusReader(corpusPath)) {
+            for (String articleId : articleIds) {
+                Article article = corpusReader.readCleanedArticle(articleId);
+                if (article == null) {
+                    System.out.println("⚠️ Article not found in corpus: " + articleId);
+                    failedIds.add(articleId);
+                } else if (article.getId() == null) {
+                    // Indexed by id, but the record itself could not be decoded
+                    System.out.println("⚠️ Could not decode corpus record: " + articleId);
+                    failedIds.add(articleId);
+                } else {
+                    articles.add(article);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Failed to read corpus: " + e.getMessage());
+            return false;
+        }
+        
+        int succeeded;
+        try {
+            succeeded = generateAndSaveAll(articles, aiService).size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("❌ Corpus rerun interrupted");
+            return false;
+        } finally {
+            saveSimilarityIndex();
+        }
+        
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("CORPUS RERUN COMPLETE: " + succeeded + "/" + articleIds.size() + " quizzes generated");
+        if (!failedIds.isEmpty()) {
+            System.out.println("Unreadable article ids: " + failedIds);
+        }
+        System.out.println("=".repeat(60));
+        
+        return succeeded == articleIds.size();
+    }
+    
+    /**
+     * Processes one shard of a JSON-lines corpus. Articles are assigned to
+     * shards by a stable hash of their id, so independent nodes running
+     * "i/N" for every i cover the corpus exactly once without coordination.
+     * Writes a shard manifest next to the quizzes for the merge step.
+     */
+    public boolean runShardPipeline(String corpusPath, int shardIndex, int shardCount) {
+        System.out.println("=".repeat(60));
+        System.out.println("QUIZ GENERATOR - SHARD " + shardIndex + "/" + shardCount + " (GROQ - JAVA)");
+        System.out.println("=".repeat(60));
+        
+        GroqAIService aiService = createAiService();
+        ShardManager shardManager = new ShardManager();
+        ShardManifest manifest = new ShardManifest();
+        manifest.setShardIndex(shardIndex);
+        manifest.setShardCount(shardCount);
+        manifest.setCorpus(corpusPath);
+        manifest.setStartedAt(Instant.now());
+        
+        try (ArticleCorpusReader corpusReader = new ArticleCorpusReader(corpusPath)) {
+            List<String> assigned = ShardManager.selectShard(corpusReader.getArticleIds(), shardIndex, shardCount);
+            manifest.setAssignedIds(assigned);
+            System.out.println("📦 Shard " + manifest.getShardLabel() + ": " + assigned.size() +
+                             " of " + corpusReader.size() + " articles");
+            
+            List<Article> articles = new ArrayList<>();
+            for (String articleId : assigned) {
+                Article article = corpusReader.readCleanedArticle(articleId);
+                if (article.getId() != null) {
+                    articles.add(article);
+                }
+            }
+            
+            Map<String, String> savedPaths = generateAndSaveAll(articles, aiService);
+            for (String articleId : assigned) {
+                String savedPath = savedPaths.get(articleId);
+                if (savedPath != null) {
+                    manifest.getCompleted().put(articleId, new File(savedPath).getName());
+                } else {
+                    manifest.getFailedIds().add(articleId);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Failed to read corpus: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("❌ Shard run interrupted");
+            return false;
+        } finally {
+            saveSimilarityIndex();
+        }
+        
+        manifest.setCompletedAt(Instant.now());
+        try {
+            String manifestPath = shardManager.writeManifest(manifest, outputQuizPath);
+            System.out.println("\n🧾 Shard manifest saved to: " + manifestPath);
+        } catch (IOException e) {
+            System.out.println("❌ Failed to save shard manifest: " + e.getMessage());
+            return false;
+        }
+        
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("SHARD " + manifest.getShardLabel() + " COMPLETE: " + manifest.getCompleted().size() +
+                         "/" + manifest.getAssignedIds().size() + " quizzes generated");
+        System.out.println("=".repeat(60));
+        
+        return manifest.getFailedIds().isEmpty();
+    }
+    
+    /**
+     * Merges the outputs of shard runs and reports missing and duplicate ids.
+     *
+     * @param shardDirs Output directories of the shard runs
+     * @param corpusPath Corpus to check coverage against, or null to skip
+     */
+    public boolean runMerge(List<String> shardDirs, String corpusPath) {
+        System.out.println("=".repeat(60));
+        System.out.println("QUIZ GENERATOR - MERGE SHARDS");
+        System.out.println("=".repeat(60));
+        
+        Map<String, Object> report;
+        try {
+            Set<String> corpusIds = null;
+            if (corpusPath != null) {
+                try (ArticleCorpusReader corpusReader = new ArticleCorpusReader(corpusPath)) {
+                    corpusIds = new HashSet<>(corpusReader.getArticleIds());
+                }
+            }
+            report = new ShardManager().merge(shardDirs, corpusIds, outputQuizPath);
+        } catch (IOException e) {
+            System.out.println("❌ Merge failed: " + e.getMessage());
+            return false;
+        }
+        
+        System.out.println("📦 Merged " + report.get("quizzes") + " quizzes from " +
+                         report.get("manifests") + " manifests into " + outputQuizPath);
+        for (String key : new String[]{"missing_shards", "duplicate_shards", "missing_ids",
+                                       "failed_ids", "duplicate_ids", "misassigned_ids"}) {
+            List<?> values = (List<?>) report.get(key);
+            if (!values.isEmpty()) {
+                System.out.println("⚠️ " + key + " (" + values.size() + "): " + values);
+            }
+        }
+        
+        boolean complete = Boolean.TRUE.equals(report.get("complete"));
+        System.out.println(complete ? "✅ Merge complete, no gaps or duplicates" : "❌ Merge found problems");
+        return complete;
+    }
+    
+    /**
+     * Serves quizzes over HTTP until the process is stopped.
+     *
+     * @param port Port to listen on
+     * @param corpusPath Corpus for lookups by article id, or null
+     * @param maxInFlight Maximum distinct upstream calls at once
+     * @param maxWaiting Maximum requests waiting on results
+     */
+    public boolean runServer(int port, String corpusPath, int maxInFlight, int maxWaiting) {
+        System.out.println("=".repeat(60));
+        System.out.println("QUIZ GENERATOR - HTTP SERVICE (GROQ - JAVA)");
+        System.out.println("=".repeat(60));
+        
+        ArticleCorpusReader corpusReader = null;
+        try {
+            if (corpusPath != null) {
+                corpusReader = new ArticleCorpusReader(corpusPath);
+            }
+            QuizHttpServer server = new QuizHttpServer(new GroqApiClient(createAiService()),
+                                                       corpusReader, maxInFlight, maxWaiting);
+            server.setTieredGeneration(tieredGeneration);
+            server.start(port);
+            
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                System.out.println("\n🛑 Stopping quiz service");
+                server.stop();
+                stopped.countDown();
+            }));
+            stopped.await();
+            return true;
+        } catch (IOException e) {
+            System.out.println("❌ Failed to start quiz service: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (corpusReader != null) {
+                try {
+                    corpusReader.close();
+                } catch (IOException e) {
+                    System.out.println("⚠️ Could not close corpus: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
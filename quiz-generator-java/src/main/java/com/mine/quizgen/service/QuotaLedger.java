@@ -0,0 +1,206 @@
+package com.mine.quizgen.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Persistent, host-wide record of API usage.
+ * Requests and provider-reported prompt/completion tokens are counted per
+ * API key, model and UTC day in a JSON file guarded by a file lock, so every
+ * process on the host sees the same totals and admission decisions do not
+ * race each other.
+ */
+public class QuotaLedger {
+
+    public static final String REQUESTS = "requests";
+    public static final String PROMPT_TOKENS = "prompt_tokens";
+    public static final String COMPLETION_TOKENS = "completion_tokens";
+
+    private static final int RETENTION_DAYS = 7;
+    private static final Object PROCESS_LOCK = new Object();
+
+    private final Path ledgerPath;
+    private final Path lockPath;
+    private final String keyId;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public QuotaLedger(Path ledgerPath, String apiKey) {
+        this.ledgerPath = ledgerPath;
+        this.lockPath = Paths.get(ledgerPath + ".lock");
+        this.keyId = fingerprint(apiKey);
+    }
+
+    /**
+     * Creates a ledger in the shared per-user location (~/.quizgen/quota_ledger.json).
+     */
+    public static QuotaLedger forDefaultLocation(String apiKey) {
+        return new QuotaLedger(Paths.get(System.getProperty("user.home"), ".quizgen", "quota_ledger.json"), apiKey);
+    }
+
+    /**
+     * Atomically reserves one request against today's limit for this key.
+     *
+     * @param model The model the request will use
+     * @param dailyLimit Maximum requests per key per UTC day, across all models
+     * @return true if the request was admitted and counted
+     */
+    public boolean tryAcquireRequest(String model, int dailyLimit) throws IOException {
+        return tryAcquireRequest(model, dailyLimit, 0);
+    }
+
+    /**
+     * Atomically reserves one request against today's request and token limits
+     * for this key. Both limits are checked in the same locked update, so
+     * concurrent processes cannot overshoot either of them.
+     *
+     * @param model The model the request will use
+     * @param dailyLimit Maximum requests per key per UTC day, across all models
+     * @param dailyTokenLimit Maximum prompt plus completion tokens per key per UTC day, or 0 for no limit
+     * @return true if the request was admitted and counted
+     */
+    public boolean tryAcquireRequest(String model, int dailyLimit, long dailyTokenLimit) throws IOException {
+        return update(ledger -> {
+            if (sumToday(ledger, REQUESTS) >= dailyLimit) {
+                return false;
+            }
+            if (dailyTokenLimit > 0
+                    && sumToday(ledger, PROMPT_TOKENS) + sumToday(ledger, COMPLETION_TOKENS) >= dailyTokenLimit) {
+                return false;
+            }
+            ledger.computeIfAbsent(entryKey(today(), model), k -> newCounters())
+                  .merge(REQUESTS, 1L, Long::sum);
+            return true;
+        });
+    }
+
+    /**
+     * Records the token usage reported by the provider for a completed request.
+     */
+    public void recordTokens(String model, long promptTokens, long completionTokens) throws IOException {
+        update(ledger -> {
+            Map<String, Long> counters = ledger.computeIfAbsent(entryKey(today(), model), k -> newCounters());
+            counters.merge(PROMPT_TOKENS, promptTokens, Long::sum);
+            counters.merge(COMPLETION_TOKENS, completionTokens, Long::sum);
+            return null;
+        });
+    }
+
+    /**
+     * Gets today's totals for this key across all models and processes.
+     *
+     * @return Map with requests, prompt_tokens and completion_tokens
+     */
+    public Map<String, Long> getTodayTotals() throws IOException {
+        return update(ledger -> {
+            Map<String, Long> totals = newCounters();
+            for (String counter : totals.keySet()) {
+                totals.put(counter, sumToday(ledger, counter));
+            }
+            return totals;
+        });
+    }
+
+    // Read-modify-write under both an in-process and a host-wide file lock
+    private <T> T update(Function<Map<String, Map<String, Long>>, T> action) throws IOException {
+        synchronized (PROCESS_LOCK) {
+            Path parent = ledgerPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel lockChannel = FileChannel.open(lockPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    Map<String, Map<String, Long>> ledger = read();
+                    String before = objectMapper.writeValueAsString(ledger);
+                    T result = action.apply(ledger);
+                    prune(ledger);
+                    if (!objectMapper.writeValueAsString(ledger).equals(before)) {
+                        write(ledger);
+                    }
+                    return result;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private Map<String, Map<String, Long>> read() throws IOException {
+        if (!Files.exists(ledgerPath) || Files.size(ledgerPath) == 0) {
+            return new TreeMap<>();
+        }
+        try {
+            return objectMapper.readValue(ledgerPath.toFile(),
+                new TypeReference<TreeMap<String, Map<String, Long>>>() {});
+        } catch (IOException e) {
+            // A corrupt ledger should not block generation; start over
+            System.out.println("⚠️ Could not read quota ledger " + ledgerPath + ": " + e.getMessage());
+            return new TreeMap<>();
+        }
+    }
+
+    private void write(Map<String, Map<String, Long>> ledger) throws IOException {
+        Path tempPath = Paths.get(ledgerPath + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(tempPath.toFile(), ledger);
+        Files.move(tempPath, ledgerPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void prune(Map<String, Map<String, Long>> ledger) {
+        String cutoff = today().minusDays(RETENTION_DAYS).toString();
+        ledger.keySet().removeIf(key -> key.substring(0, key.indexOf('|')).compareTo(cutoff) < 0);
+    }
+
+    private long sumToday(Map<String, Map<String, Long>> ledger, String counter) {
+        String prefix = today() + "|" + keyId + "|";
+        long total = 0;
+        for (Map.Entry<String, Map<String, Long>> entry : ledger.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                total += entry.getValue().getOrDefault(counter, 0L);
+            }
+        }
+        return total;
+    }
+
+    private String entryKey(LocalDate day, String model) {
+        return day + "|" + keyId + "|" + model;
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    private static Map<String, Long> newCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put(REQUESTS, 0L);
+        counters.put(PROMPT_TOKENS, 0L);
+        counters.put(COMPLETION_TOKENS, 0L);
+        return counters;
+    }
+
+    // Never store the raw key; a short hash is enough to tell keys apart
+    private static String fingerprint(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(String.valueOf(apiKey).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
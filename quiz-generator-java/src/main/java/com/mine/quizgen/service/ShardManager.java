@@ -0,0 +1,216 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.ShardManifest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Coordinator-free sharding of batch runs.
+ * Each node keeps only the article ids whose stable hash falls in its shard,
+ * records what it produced in a shard manifest, and a merge step combines
+ * the manifests and reports missing and duplicate ids.
+ */
+public class ShardManager {
+
+    private static final String MANIFEST_PREFIX = "shard_";
+    private static final String MANIFEST_SUFFIX = ".manifest.json";
+
+    private final ObjectMapper objectMapper;
+
+    public ShardManager() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+    }
+
+    /**
+     * Parses a shard spec of the form "i/N" with 0 <= i < N.
+     *
+     * @param spec The shard spec
+     * @return {index, count}
+     */
+    public static int[] parseShardSpec(String spec) {
+        String[] parts = spec == null ? new String[0] : spec.trim().split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Shard must be i/N, got: " + spec);
+        }
+        int index;
+        int count;
+        try {
+            index = Integer.parseInt(parts[0].trim());
+            count = Integer.parseInt(parts[1].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shard must be i/N with integers, got: " + spec);
+        }
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard index must be in [0, " + count + "), got: " + spec);
+        }
+        return new int[]{index, count};
+    }
+
+    /**
+     * Stable shard assignment: CRC32 of the UTF-8 article id, modulo the shard count.
+     * Unlike String.hashCode this is fixed by specification, so every node agrees.
+     */
+    public static int shardOf(String articleId, int shardCount) {
+        CRC32 crc = new CRC32();
+        crc.update(articleId.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount);
+    }
+
+    public static List<String> selectShard(Collection<String> articleIds, int shardIndex, int shardCount) {
+        List<String> selected = new ArrayList<>();
+        for (String articleId : articleIds) {
+            if (shardOf(articleId, shardCount) == shardIndex) {
+                selected.add(articleId);
+            }
+        }
+        Collections.sort(selected);
+        return selected;
+    }
+
+    public static String manifestFileName(int shardIndex, int shardCount) {
+        return MANIFEST_PREFIX + shardIndex + "_of_" + shardCount + MANIFEST_SUFFIX;
+    }
+
+    public String writeManifest(ShardManifest manifest, String outputDir) throws IOException {
+        File dir = new File(outputDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File manifestFile = new File(dir, manifestFileName(manifest.getShardIndex(), manifest.getShardCount()));
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(manifestFile, manifest);
+        return manifestFile.getPath();
+    }
+
+    /**
+     * Merges shard outputs into one directory and checks them against the corpus.
+     *
+     * @param shardDirs Directories holding shard manifests and their quiz files
+     * @param corpusIds All article ids in the corpus, or null to expect the ids the manifests were assigned
+     * @param mergedDir Directory to copy quizzes and write the merge report into
+     * @return Merge report with missing shards, missing, failed and duplicate ids
+     */
+    public Map<String, Object> merge(List<String> shardDirs, Collection<String> corpusIds,
+                                     String mergedDir) throws IOException {
+        File outputDir = new File(mergedDir);
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+
+        List<ShardManifest> manifests = new ArrayList<>();
+        Map<ShardManifest, File> manifestDirs = new IdentityHashMap<>();
+        for (String shardDir : shardDirs) {
+            File[] files = new File(shardDir).listFiles(
+                (d, name) -> name.startsWith(MANIFEST_PREFIX) && name.endsWith(MANIFEST_SUFFIX));
+            if (files == null) {
+                System.out.println("⚠️ Not a directory: " + shardDir);
+                continue;
+            }
+            for (File file : files) {
+                ShardManifest manifest = objectMapper.readValue(file, ShardManifest.class);
+                manifests.add(manifest);
+                manifestDirs.put(manifest, file.getParentFile());
+            }
+        }
+
+        if (manifests.isEmpty()) {
+            throw new IOException("No shard manifests found in " + shardDirs);
+        }
+
+        // All manifests must come from the same sharding
+        int shardCount = manifests.get(0).getShardCount();
+        Set<Integer> seenShards = new TreeSet<>();
+        List<String> duplicateShards = new ArrayList<>();
+        for (ShardManifest manifest : manifests) {
+            if (manifest.getShardCount() != shardCount) {
+                throw new IOException("Mixed shard counts: " + shardCount + " and " + manifest.getShardCount());
+            }
+            if (!seenShards.add(manifest.getShardIndex())) {
+                duplicateShards.add(manifest.getShardLabel());
+            }
+        }
+        List<String> missingShards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            if (!seenShards.contains(i)) {
+                missingShards.add(i + "/" + shardCount);
+            }
+        }
+
+        // Combine completed quizzes, keeping the first copy of any duplicate
+        Map<String, String> merged = new TreeMap<>();
+        Set<String> duplicateIds = new TreeSet<>();
+        Set<String> misassignedIds = new TreeSet<>();
+        for (ShardManifest manifest : manifests) {
+            File sourceDir = manifestDirs.get(manifest);
+            for (Map.Entry<String, String> entry : manifest.getCompleted().entrySet()) {
+                String articleId = entry.getKey();
+                if (shardOf(articleId, shardCount) != manifest.getShardIndex()) {
+                    misassignedIds.add(articleId);
+                }
+                if (merged.containsKey(articleId)) {
+                    duplicateIds.add(articleId);
+                    continue;
+                }
+                File source = new File(sourceDir, entry.getValue());
+                if (!source.exists()) {
+                    System.out.println("⚠️ Quiz file missing for " + articleId + ": " + source.getPath());
+                    continue;
+                }
+                File target = new File(outputDir, source.getName());
+                if (!source.getCanonicalFile().equals(target.getCanonicalFile())) {
+                    Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                merged.put(articleId, target.getName());
+            }
+        }
+
+        // Without the corpus, every id some shard was assigned is expected
+        Collection<String> expectedIds = corpusIds;
+        Set<String> failedIds = new TreeSet<>();
+        if (expectedIds == null) {
+            Set<String> assignedIds = new HashSet<>();
+            for (ShardManifest manifest : manifests) {
+                assignedIds.addAll(manifest.getAssignedIds());
+            }
+            expectedIds = assignedIds;
+        }
+        for (ShardManifest manifest : manifests) {
+            failedIds.addAll(manifest.getFailedIds());
+        }
+        failedIds.removeAll(merged.keySet());
+
+        Set<String> missingIds = new TreeSet<>(failedIds);
+        for (String articleId : expectedIds) {
+            if (!merged.containsKey(articleId)) {
+                missingIds.add(articleId);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("shard_count", shardCount);
+        report.put("manifests", manifests.size());
+        report.put("quizzes", merged.size());
+        report.put("missing_shards", missingShards);
+        report.put("duplicate_shards", duplicateShards);
+        report.put("missing_ids", new ArrayList<>(missingIds));
+        report.put("failed_ids", new ArrayList<>(failedIds));
+        report.put("duplicate_ids", new ArrayList<>(duplicateIds));
+        report.put("misassigned_ids", new ArrayList<>(misassignedIds));
+        report.put("complete", missingShards.isEmpty() && duplicateShards.isEmpty()
+            && missingIds.isEmpty() && duplicateIds.isEmpty() && misassignedIds.isEmpty());
+        report.put("quiz_files", merged);
+
+        objectMapper.writerWithDefaultPrettyPrinter()
+                   .writeValue(new File(outputDir, "merge_report.json"), report);
+        return report;
+    }
+}
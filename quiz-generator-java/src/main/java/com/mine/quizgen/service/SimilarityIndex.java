@@ -0,0 +1,310 @@
+package com.mine.quizgen.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Near-duplicate index over cleaned article text.
+ * Articles are reduced to word shingles, summarized with a MinHash signature
+ * and bucketed with LSH banding, so syndicated copies of a story can be
+ * matched to an already generated quiz without an exact hash match.
+ */
+public class SimilarityIndex {
+
+    private static final int SHINGLE_SIZE = 5;
+    private static final int NUM_HASHES = 128;
+    private static final int BANDS = 32;
+    private static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    // Fixed seeds so signatures stay comparable across runs
+    private static final long[] HASH_SEEDS = new long[NUM_HASHES];
+    static {
+        Random random = new Random(0x5EEDL);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            HASH_SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private final String indexPath;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Set<String>> buckets = new HashMap<>();
+
+    // Persisted record for one indexed article
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        @JsonProperty("article_id")
+        private String articleId;
+
+        @JsonProperty("quiz_path")
+        private String quizPath;
+
+        @JsonProperty("signature")
+        private int[] signature;
+
+        // Default constructor for Jackson
+        public Entry() {}
+
+        public Entry(String articleId, String quizPath, int[] signature) {
+            this.articleId = articleId;
+            this.quizPath = quizPath;
+            this.signature = signature;
+        }
+    }
+
+    // Result of a similarity lookup
+    @Data
+    public static class Match {
+        private final String articleId;
+        private final String quizPath;
+        private final double similarity;
+
+        public Match(String articleId, String quizPath, double similarity) {
+            this.articleId = articleId;
+            this.quizPath = quizPath;
+            this.similarity = similarity;
+        }
+    }
+
+    public SimilarityIndex(String indexPath) {
+        this.indexPath = indexPath;
+        if (indexPath != null) {
+            load();
+        }
+    }
+
+    /**
+     * Creates an index that is never loaded or saved, e.g. for matching
+     * articles within one batch.
+     */
+    public static SimilarityIndex inMemory() {
+        return new SimilarityIndex(null);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the most similar indexed article above the given threshold.
+     *
+     * @param cleanText The cleaned article text
+     * @param threshold Minimum estimated Jaccard similarity (0.0 - 1.0)
+     * @param excludeArticleId Article id to ignore, usually the article itself
+     * @return The best match, or null if none reaches the threshold
+     */
+    public Match findSimilar(String cleanText, double threshold, String excludeArticleId) {
+        int[] signature = signature(cleanText);
+        if (signature == null) {
+            return null;
+        }
+
+        // Collect candidates sharing at least one LSH band
+        Set<String> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> bucket = buckets.get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        candidates.remove(excludeArticleId);
+
+        Match best = null;
+        for (String candidateId : candidates) {
+            Entry entry = entries.get(candidateId);
+            double similarity = estimateSimilarity(signature, entry.getSignature());
+            if (similarity >= threshold && (best == null || similarity > best.getSimilarity())) {
+                best = new Match(entry.getArticleId(), entry.getQuizPath(), similarity);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds or replaces an article and the quiz generated for it.
+     *
+     * @param articleId The article id
+     * @param quizPath Path of the saved quiz file
+     * @param cleanText The cleaned article text
+     */
+    public void add(String articleId, String quizPath, String cleanText) {
+        int[] signature = signature(cleanText);
+        if (articleId == null || signature == null) {
+            return;
+        }
+        remove(articleId);
+        Entry entry = new Entry(articleId, quizPath, signature);
+        entries.put(articleId, entry);
+        addToBuckets(entry);
+    }
+
+    public void remove(String articleId) {
+        Entry existing = entries.remove(articleId);
+        if (existing == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            String key = bandKey(existing.getSignature(), band);
+            Set<String> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(articleId);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the index. Entries other processes saved since this index was
+     * loaded are merged in first, under a file lock, and the file is replaced
+     * atomically, so concurrent shard or corpus runs sharing an output
+     * directory neither drop each other's entries nor leave a torn file.
+     */
+    public void save() throws IOException {
+        if (indexPath == null) {
+            throw new IllegalStateException("In-memory similarity index cannot be saved");
+        }
+        Path path = Paths.get(indexPath).toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        try (FileChannel lockChannel = FileChannel.open(Paths.get(path + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = lockChannel.lock();
+            Path tempPath = null;
+            try {
+                try {
+                    for (Entry entry : readEntries(path.toFile())) {
+                        if (!entries.containsKey(entry.getArticleId())) {
+                            entries.put(entry.getArticleId(), entry);
+                            addToBuckets(entry);
+                        }
+                    }
+                } catch (IOException e) {
+                    // An unreadable index is replaced with what this process has
+                    System.out.println("⚠️ Could not read similarity index " + indexPath + ": " + e.getMessage());
+                }
+                tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+                objectMapper.writeValue(tempPath.toFile(), new ArrayList<>(entries.values()));
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                tempPath = null;
+            } finally {
+                if (tempPath != null) {
+                    Files.deleteIfExists(tempPath);
+                }
+                lock.release();
+            }
+        }
+    }
+
+    private void load() {
+        try {
+            for (Entry entry : readEntries(new File(indexPath))) {
+                entries.put(entry.getArticleId(), entry);
+                addToBuckets(entry);
+            }
+            if (!entries.isEmpty()) {
+                System.out.println("🔎 Loaded similarity index with " + entries.size() + " articles");
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not read similarity index " + indexPath + ": " + e.getMessage());
+        }
+    }
+
+    // Valid entries stored in an index file; none if the file does not exist yet
+    private List<Entry> readEntries(File indexFile) throws IOException {
+        List<Entry> valid = new ArrayList<>();
+        if (!indexFile.exists()) {
+            return valid;
+        }
+        List<Entry> loaded = objectMapper.readValue(indexFile, new TypeReference<List<Entry>>() {});
+        for (Entry entry : loaded) {
+            if (entry.getArticleId() != null && entry.getSignature() != null
+                    && entry.getSignature().length == NUM_HASHES) {
+                valid.add(entry);
+            }
+        }
+        return valid;
+    }
+
+    private void addToBuckets(Entry entry) {
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bandKey(entry.getSignature(), band), k -> new HashSet<>())
+                   .add(entry.getArticleId());
+        }
+    }
+
+    private static String bandKey(int[] signature, int band) {
+        int start = band * ROWS_PER_BAND;
+        return band + ":" + Arrays.hashCode(Arrays.copyOfRange(signature, start, start + ROWS_PER_BAND));
+    }
+
+    private static double estimateSimilarity(int[] a, int[] b) {
+        int matches = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                matches++;
+            }
+        }
+        return (double) matches / NUM_HASHES;
+    }
+
+    /**
+     * Computes the MinHash signature of a text over its word shingles.
+     *
+     * @param cleanText The cleaned article text
+     * @return The signature, or null if the text has no words
+     */
+    static int[] signature(String cleanText) {
+        if (cleanText == null || cleanText.isBlank()) {
+            return null;
+        }
+        String[] words = NON_WORD.split(cleanText.toLowerCase(Locale.ROOT).trim());
+        if (words.length == 0 || (words.length == 1 && words[0].isEmpty())) {
+            return null;
+        }
+
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        int shingleCount = Math.max(1, words.length - SHINGLE_SIZE + 1);
+        for (int start = 0; start < shingleCount; start++) {
+            long shingleHash = 1125899906842597L;
+            for (int w = start; w < Math.min(words.length, start + SHINGLE_SIZE); w++) {
+                shingleHash = 31 * shingleHash + words[w].hashCode();
+            }
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int h = (int) mix(shingleHash ^ HASH_SEEDS[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    // 64-bit finalizer from MurmurHash3
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb93fe53e94dbL;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -0,0 +1,113 @@
+package com.mine.quizgen.model;
+
+import org.junit.jupiter.api.Test;
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the retained heap of the compact model classes against the
+ * layouts they replaced: a HashMap of options per question, and an article
+ * holding its HTML, cleaned text and a title-prefixed copy of the text.
+ */
+public class FootprintTest {
+
+    private static final int INSTANCES = 20_000;
+    private static final String CLEAN_TEXT = "Dialectics is a way of thinking that focuses on how opposing forces interact. ".repeat(12);
+
+    // Pre-compaction Question layout
+    static class LegacyQuestion {
+        Integer id;
+        String question;
+        Map<String, String> options;
+        String correctAnswer;
+        String explanation;
+        String difficulty;
+    }
+
+    // Pre-compaction Article layout, as left behind by the cleaner
+    static class LegacyArticle {
+        String id;
+        String title;
+        String htmlBody;
+        String cleanText;
+        String fullText;
+    }
+
+    @Test
+    public void compactQuestionIsSmallerThanMapBasedQuestion() {
+        // Option strings are shared so only the container layout differs
+        String[] letters = {"A", "B", "C", "D"};
+        String[] texts = {"first option", "second option", "third option", "fourth option"};
+
+        long legacy = bytesPerObject(i -> {
+            LegacyQuestion q = new LegacyQuestion();
+            q.options = new HashMap<>();
+            for (int j = 0; j < 4; j++) {
+                q.options.put(letters[j], texts[j]);
+            }
+            return q;
+        });
+        long compact = bytesPerObject(i -> {
+            Question q = new Question();
+            q.setOptions(new Options(texts[0], texts[1], texts[2], texts[3]));
+            return q;
+        });
+
+        System.out.println("Question: " + legacy + " -> " + compact + " bytes per object");
+        assertTrue(compact < legacy, "compact question should be smaller: " + compact + " vs " + legacy);
+    }
+
+    @Test
+    public void cleanedArticleDropsHtmlAndDerivedText() {
+        long legacy = bytesPerObject(i -> {
+            LegacyArticle a = new LegacyArticle();
+            a.id = "article-" + i;
+            a.title = "Title " + i;
+            a.cleanText = CLEAN_TEXT + i;
+            a.htmlBody = "<p>" + a.cleanText + "</p>";
+            a.fullText = a.title + "\n\n" + a.cleanText;
+            return a;
+        });
+        long compact = bytesPerObject(i -> {
+            Article a = new Article();
+            a.setId("article-" + i);
+            a.setTitle("Title " + i);
+            a.setCleanText(CLEAN_TEXT + i);
+            a.setHtmlBody("<p>" + a.getCleanText() + "</p>");
+            a.releaseHtmlBody();
+            return a;
+        });
+
+        System.out.println("Article: " + legacy + " -> " + compact + " bytes per object");
+        // The legacy layout holds the text three times; allow generous measurement noise
+        assertTrue(compact * 2 < legacy, "compact article should be well under half: " + compact + " vs " + legacy);
+    }
+
+    private static long bytesPerObject(IntFunction<Object> factory) {
+        Object[] retained = new Object[INSTANCES];
+        long before = usedHeap();
+        for (int i = 0; i < INSTANCES; i++) {
+            retained[i] = factory.apply(i);
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(retained);
+        return (after - before) / INSTANCES;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,37 @@
+package com.mine.quizgen.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class QuestionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void optionsSerializeAsLetterKeyedObject() throws Exception {
+        Question question = new Question();
+        question.setOptions(new Options("a1", "b1", "c1", "d1"));
+
+        String json = objectMapper.writeValueAsString(question.getOptions());
+
+        assertEquals("{\"A\":\"a1\",\"B\":\"b1\",\"C\":\"c1\",\"D\":\"d1\"}", json);
+    }
+
+    @Test
+    public void optionsAcceptLowercaseKeysAndExtraOptions() throws Exception {
+        String json = "{\"id\":1,\"options\":{\"a\":\"x\",\"B\":\"y\",\"c\":\"z\",\"D\":\"w\",\"E\":\"extra\"},"
+                + "\"correct_answer\":\"b\",\"difficulty\":\"medium\"}";
+
+        Question question = objectMapper.readValue(json, Question.class);
+
+        assertEquals("x", question.getOption("A"));
+        assertEquals("y", question.getOption("b"));
+        assertEquals("z", question.getOption("C"));
+        assertEquals("w", question.getOption("d"));
+        assertNull(question.getOption("E"));
+        assertEquals("Medium", question.getDifficulty());
+    }
+}
@@ -0,0 +1,161 @@
+package com.mine.quizgen.server;
+
+import com.mine.quizgen.client.GroqApiClient;
+import com.mine.quizgen.model.Article;
+import com.mine.quizgen.model.Quiz;
+import com.mine.quizgen.service.GroqAIService;
+import com.mine.quizgen.service.QuotaLedger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuizHttpServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    // Holds every upstream call until released, counting how many were made
+    private static class BlockingAIService extends GroqAIService {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingAIService(Path ledgerPath) {
+            super("test-key", new QuotaLedger(ledgerPath, "test-key"), 1000);
+        }
+
+        @Override
+        public Quiz generateFromArticleData(Article article, int maxRetries, boolean waitOnRateLimit) {
+            calls.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Quiz quiz = new Quiz();
+            quiz.setArticleId(article.getId());
+            return quiz;
+        }
+    }
+
+    private static Article article(String id, String title, String text) {
+        Article article = new Article();
+        article.setId(id);
+        article.setTitle(title);
+        article.setCleanText(text);
+        return article;
+    }
+
+    private static String articleJson(String id) {
+        return "{\"id\":\"" + id + "\",\"title\":\"Title " + id + "\"," +
+               "\"body\":\"<p>Body of article " + id + ".</p>\"}";
+    }
+
+    private CompletableFuture<HttpResponse<String>> post(QuizHttpServer server, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/quiz"))
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String health(QuizHttpServer server) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/health"))
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    // Polls until the condition holds, failing after a few seconds
+    private static void awaitTrue(String what, Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.call()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for " + what);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void requestKeyMatchesOnlyIdenticalArticles() {
+        String key = QuizHttpServer.requestKey(article("art-1", "Title", "Some article text."));
+
+        assertEquals(key, QuizHttpServer.requestKey(article("art-1", "Title", "Some article text.")));
+        assertNotEquals(key, QuizHttpServer.requestKey(article("art-1", "Title", "Some article text!")));
+        assertNotEquals(key, QuizHttpServer.requestKey(article("art-2", "Title", "Some article text.")));
+        // "Aa" and "BB" have the same String.hashCode()
+        assertNotEquals(QuizHttpServer.requestKey(article("art-1", "Title", "Aa")),
+                        QuizHttpServer.requestKey(article("art-1", "Title", "BB")));
+        assertTrue(key.startsWith("art-1:"));
+    }
+
+    @Test
+    public void concurrentRequestsForOneArticleShareOneUpstreamCall() throws Exception {
+        BlockingAIService service = new BlockingAIService(tempDir.resolve("ledger.json"));
+        QuizHttpServer server = new QuizHttpServer(new GroqApiClient(service), null, 2, 10);
+        server.start(0);
+        try {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            responses.add(post(server, articleJson("same")));
+            awaitTrue("the first upstream call", () -> service.calls.get() == 1);
+            for (int i = 0; i < 4; i++) {
+                responses.add(post(server, articleJson("same")));
+            }
+            awaitTrue("requests to join", () -> health(server).contains("\"coalesced_total\":4"));
+            service.release.countDown();
+
+            int coalesced = 0;
+            for (CompletableFuture<HttpResponse<String>> future : responses) {
+                HttpResponse<String> response = future.get(10, TimeUnit.SECONDS);
+                assertEquals(200, response.statusCode());
+                assertTrue(response.body().contains("\"same\""), response.body());
+                if (response.headers().firstValue("X-Quiz-Coalesced").isPresent()) {
+                    coalesced++;
+                }
+            }
+            assertEquals(1, service.calls.get());
+            assertEquals(4, coalesced);
+        } finally {
+            service.release.countDown();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void distinctRequestsBeyondMaxInFlightGet503() throws Exception {
+        BlockingAIService service = new BlockingAIService(tempDir.resolve("ledger.json"));
+        QuizHttpServer server = new QuizHttpServer(new GroqApiClient(service), null, 2, 10);
+        server.start(0);
+        try {
+            List<CompletableFuture<HttpResponse<String>>> accepted = new ArrayList<>();
+            accepted.add(post(server, articleJson("first")));
+            accepted.add(post(server, articleJson("second")));
+            awaitTrue("both upstream calls", () -> service.calls.get() == 2);
+
+            HttpResponse<String> rejected = post(server, articleJson("third")).get(10, TimeUnit.SECONDS);
+            assertEquals(503, rejected.statusCode());
+            assertEquals(Optional.of("30"), rejected.headers().firstValue("Retry-After"));
+
+            service.release.countDown();
+            for (CompletableFuture<HttpResponse<String>> future : accepted) {
+                assertEquals(200, future.get(10, TimeUnit.SECONDS).statusCode());
+            }
+            assertEquals(2, service.calls.get());
+        } finally {
+            service.release.countDown();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.Article;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArticleCorpusReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeCorpus() throws Exception {
+        Path corpus = tempDir.resolve("corpus.jsonl");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            lines.append("{\"id\":\"art-").append(i).append("\",\"title\":\"Title ").append(i)
+                 .append("\",\"body\":\"<p>Paragraph text for article number ").append(i).append(".</p>\"}\n");
+        }
+        Files.writeString(corpus, lines.toString());
+        return corpus;
+    }
+
+    @Test
+    public void buildsIndexAndReadsSingleRecords() throws Exception {
+        Path corpus = writeCorpus();
+
+        try (ArticleCorpusReader reader = new ArticleCorpusReader(corpus.toString())) {
+            assertEquals(3, reader.size());
+            Article article = reader.readArticle("art-1");
+            assertEquals("Title 1", article.getTitle());
+            assertNull(reader.readArticle("missing"));
+        }
+        assertTrue(Files.exists(Path.of(corpus + ".idx")));
+
+        // Second open loads the saved index
+        try (ArticleCorpusReader reader = new ArticleCorpusReader(corpus.toString())) {
+            assertEquals("Title 2", reader.readArticle("art-2").getTitle());
+        }
+    }
+
+    @Test
+    public void rebuildsIndexWithOutOfRangeEntries() throws Exception {
+        Path corpus = writeCorpus();
+        Path index = Path.of(corpus + ".idx");
+
+        // Valid header for this corpus, followed by an entry past the end of the file
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(index))) {
+            out.writeInt(0x51474958);
+            out.writeInt(1);
+            out.writeLong(Files.size(corpus));
+            out.writeLong(Files.getLastModifiedTime(corpus).toMillis());
+            out.writeInt(1);
+            out.writeUTF("art-0");
+            out.writeLong(Files.size(corpus));
+            out.writeInt(100);
+        }
+
+        try (ArticleCorpusReader reader = new ArticleCorpusReader(corpus.toString())) {
+            assertEquals(3, reader.size());
+            assertEquals("Title 0", reader.readArticle("art-0").getTitle());
+        }
+    }
+}
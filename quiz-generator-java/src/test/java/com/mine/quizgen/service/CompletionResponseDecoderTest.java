@@ -0,0 +1,129 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.Quiz;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompletionResponseDecoderTest {
+
+    private static final String QUIZ_JSON =
+        "{\"quiz_title\":\"Quiz: Title\",\"questions\":[{\"id\":1,\"question\":\"What?\"," +
+        "\"options\":{\"A\":\"a\",\"B\":\"b\",\"C\":\"c\",\"D\":\"d\"}," +
+        "\"correct_answer\":\"A\",\"explanation\":\"Because.\",\"difficulty\":\"Easy\"}]}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final CompletionResponseDecoder decoder = new CompletionResponseDecoder(objectMapper);
+
+    // Wraps model output in a chat completion response, escaping it as a JSON string
+    private String response(String content) throws IOException {
+        return "{\"id\":\"cmpl-1\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":" +
+               objectMapper.writeValueAsString(content) + "}}]," +
+               "\"usage\":{\"prompt_tokens\":1200,\"completion_tokens\":800,\"total_tokens\":2000}}";
+    }
+
+    private CompletionResponseDecoder.DecodedResponse decode(String body) throws IOException {
+        return decoder.decode(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static int[] find(String text) {
+        return CompletionResponseDecoder.findJsonObject(text.toCharArray(), 0, text.length());
+    }
+
+    @Test
+    public void decodesPlainContentAndUsage() throws Exception {
+        CompletionResponseDecoder.DecodedResponse decoded = decode(response(QUIZ_JSON));
+
+        assertEquals("Quiz: Title", decoded.getQuiz().getQuizTitle());
+        assertEquals(1, decoded.getQuiz().getQuestions().size());
+        assertEquals(1200, decoded.getPromptTokens());
+        assertEquals(800, decoded.getCompletionTokens());
+    }
+
+    @Test
+    public void usageBeforeChoicesIsPickedUp() throws Exception {
+        String body = "{\"usage\":{\"prompt_tokens\":7,\"completion_tokens\":3}," +
+                      "\"choices\":[{\"message\":{\"content\":" + objectMapper.writeValueAsString(QUIZ_JSON) + "}}]}";
+
+        CompletionResponseDecoder.DecodedResponse decoded = decode(body);
+
+        assertEquals(7, decoded.getPromptTokens());
+        assertEquals(3, decoded.getCompletionTokens());
+        assertNotNull(decoded.getQuiz());
+    }
+
+    @Test
+    public void stripsMarkdownFences() throws Exception {
+        Quiz quiz = decode(response("```json\n" + QUIZ_JSON + "\n```")).getQuiz();
+
+        assertEquals("Quiz: Title", quiz.getQuizTitle());
+    }
+
+    @Test
+    public void skipsChattyTextAroundTheObject() throws Exception {
+        Quiz quiz = decode(response("Sure! Here is your quiz:\n" + QUIZ_JSON +
+                                    "\nLet me know if you want {more} questions.")).getQuiz();
+
+        assertEquals("Quiz: Title", quiz.getQuizTitle());
+    }
+
+    @Test
+    public void ignoresBracesAndEscapedQuotesInsideStrings() throws Exception {
+        String content = "{\"quiz_title\":\"Sets like {a, b} and \\\"quoted }\\\" text\",\"questions\":[]} trailing }";
+
+        Quiz quiz = decode(response(content)).getQuiz();
+
+        assertEquals("Sets like {a, b} and \"quoted }\" text", quiz.getQuizTitle());
+        assertArrayEquals(new int[]{0, content.indexOf(" trailing")}, find(content));
+    }
+
+    @Test
+    public void acceptsTrailingCommas() throws Exception {
+        String content = QUIZ_JSON.replace("\"difficulty\":\"Easy\"}]}", "\"difficulty\":\"Easy\",},]}");
+
+        Quiz quiz = decode(response(content)).getQuiz();
+
+        assertEquals(1, quiz.getQuestions().size());
+    }
+
+    @Test
+    public void unclosedObjectFallsBackToLastClosingBrace() {
+        String text = "{\"quiz_title\":\"T\",\"questions\":[{\"id\":1}";
+
+        assertArrayEquals(new int[]{0, text.length()}, find(text));
+        assertNull(find("no json here"));
+        assertNull(find("{ never closed"));
+    }
+
+    @Test
+    public void findsObjectWithinBufferRange() {
+        char[] buffer = "{\"x\":1} prefix {\"y\":2} suffix".toCharArray();
+        int offset = 15;
+
+        assertArrayEquals(new int[]{15, 22}, CompletionResponseDecoder.findJsonObject(buffer, offset, 10));
+    }
+
+    @Test
+    public void rejectsMissingOrNullContent() throws Exception {
+        IOException noContent = assertThrows(IOException.class,
+            () -> decode("{\"choices\":[{\"message\":{\"role\":\"assistant\"}}]}"));
+        assertTrue(noContent.getMessage().startsWith("No content"), noContent.getMessage());
+
+        IOException nullContent = assertThrows(IOException.class,
+            () -> decode("{\"choices\":[{\"message\":{\"content\":null}}]}"));
+        assertTrue(nullContent.getMessage().startsWith("Empty content"), nullContent.getMessage());
+
+        IOException noChoices = assertThrows(IOException.class,
+            () -> decode("{\"choices\":[],\"usage\":{\"prompt_tokens\":1}}"));
+        assertTrue(noChoices.getMessage().startsWith("No choices"), noChoices.getMessage());
+
+        IOException noJson = assertThrows(IOException.class,
+            () -> decode(response("I could not write a quiz for this article.")));
+        assertTrue(noJson.getMessage().startsWith("No valid JSON"), noJson.getMessage());
+    }
+}
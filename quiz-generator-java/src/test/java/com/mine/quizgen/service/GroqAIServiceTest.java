@@ -0,0 +1,173 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.Article;
+import com.mine.quizgen.model.Options;
+import com.mine.quizgen.model.Question;
+import com.mine.quizgen.model.Quiz;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroqAIServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private GroqAIService newService() {
+        return new GroqAIService("test-key", new QuotaLedger(tempDir.resolve("ledger.json"), "test-key"), 10);
+    }
+
+    @Test
+    public void loadsQuizItSaved() throws Exception {
+        GroqAIService service = newService();
+        Quiz quiz = new Quiz();
+        quiz.setSuccess(true);
+        quiz.setArticleId("art-1");
+        quiz.setQuizTitle("Quiz: Title");
+        Question question = new Question();
+        question.setId(1);
+        question.setQuestion("What?");
+        question.setOptions(new Options("a", "b", "c", "d"));
+        question.setCorrectAnswer("A");
+        quiz.setQuestions(List.of(question));
+
+        String path = service.saveQuiz(quiz, tempDir.resolve("outputs").toString());
+        // Saved files carry derived fields such as "questionCount"
+        assertTrue(Files.readString(Path.of(path)).contains("questionCount"));
+
+        Quiz loaded = service.loadQuiz(path);
+        assertEquals("art-1", loaded.getArticleId());
+        assertEquals(1, loaded.getQuestions().size());
+        assertEquals("b", loaded.getQuestions().get(0).getOptions().getB());
+    }
+
+    @Test
+    public void ignoresUnknownFieldsInSavedQuiz() throws Exception {
+        Path file = tempDir.resolve("quiz.json");
+        Files.writeString(file, "{\"apiProvider\":\"Groq\",\"success\":true,\"questionCount\":0,"
+            + "\"article_id\":\"art-2\",\"questions\":[],\"added_later\":true}");
+
+        Quiz loaded = newService().loadQuiz(file.toString());
+        assertEquals("art-2", loaded.getArticleId());
+    }
+
+    // Answers each tier request from a canned function instead of calling Groq
+    private static class FakeTierService extends GroqAIService {
+        final Map<String, Boolean> sawCancel = new ConcurrentHashMap<>();
+        final Function<String, Quiz> tierAnswer;
+
+        FakeTierService(Path ledgerPath, Function<String, Quiz> tierAnswer) {
+            super("test-key", new QuotaLedger(ledgerPath, "test-key"), 10);
+            this.tierAnswer = tierAnswer;
+        }
+
+        @Override
+        Quiz generateFromPrompt(Article article, String prompt, int maxCompletionTokens, int maxRetries,
+                                boolean waitOnRateLimit, AtomicBoolean cancelled) {
+            String tier = prompt.replaceAll("(?s).*all of (\\w+) difficulty.*", "$1");
+            Quiz quiz = tierAnswer.apply(tier);
+            if (quiz == null) {
+                // Stand-in for a long 429 backoff that only ends when cancelled
+                long until = System.currentTimeMillis() + 5_000;
+                while (!cancelled.get() && System.currentTimeMillis() < until) {
+                    Thread.onSpinWait();
+                }
+                sawCancel.put(tier, cancelled.get());
+                quiz = failedQuiz("Cancelled");
+            }
+            return quiz;
+        }
+    }
+
+    private static Article article() {
+        Article article = new Article();
+        article.setId("art-1");
+        article.setTitle("Title");
+        article.setCleanText("Some article text.");
+        return article;
+    }
+
+    private static Quiz failedQuiz(String message) {
+        Quiz quiz = new Quiz();
+        quiz.setSuccess(false);
+        quiz.setErrorMessage(message);
+        return quiz;
+    }
+
+    private static Quiz tierQuiz(String... questionTexts) {
+        List<Question> questions = new ArrayList<>();
+        for (String text : questionTexts) {
+            Question question = new Question();
+            question.setId(99);
+            question.setQuestion(text);
+            question.setDifficulty("Medium");  // Deliberately wrong for most tiers
+            question.setOptions(new Options("a", "b", "c", "d"));
+            question.setCorrectAnswer("A");
+            questions.add(question);
+        }
+        Quiz quiz = new Quiz();
+        quiz.setArticleId("art-1");
+        quiz.setQuestions(questions);
+        return quiz;
+    }
+
+    @Test
+    public void mergesTiersWithContinuousIdsAndTierDifficulty() {
+        FakeTierService service = new FakeTierService(tempDir.resolve("ledger.json"), tier -> {
+            switch (tier) {
+                case "Easy": return tierQuiz("What is X?", "Who is Y?");
+                case "Medium": return tierQuiz("Why does X cause Y?", "what is x");
+                default: return tierQuiz("What follows from X and Y?");
+            }
+        });
+
+        Quiz quiz = service.generateByDifficultyTiers(article(), 0);
+
+        assertTrue(quiz.isSuccess());
+        List<Question> questions = quiz.getQuestions();
+        // "what is x" duplicates an Easy question after normalization
+        assertEquals(4, questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            assertEquals(i + 1, questions.get(i).getId().intValue());
+        }
+        assertEquals("Easy", questions.get(0).getDifficulty());
+        assertEquals("Easy", questions.get(1).getDifficulty());
+        assertEquals("Medium", questions.get(2).getDifficulty());
+        assertEquals("Hard", questions.get(3).getDifficulty());
+    }
+
+    @Test
+    public void failingTierCancelsSiblingsAndReturnsFirstFailure() {
+        FakeTierService service = new FakeTierService(tempDir.resolve("ledger.json"),
+            tier -> "Hard".equals(tier) ? failedQuiz("Boom") : null);
+
+        long started = System.nanoTime();
+        Quiz quiz = service.generateByDifficultyTiers(article(), 0);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertFalse(quiz.isSuccess());
+        assertEquals("Hard tier failed: Boom", quiz.getErrorMessage());
+        assertTrue(elapsedMillis < 2_000, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void exhaustedQuotaReturnsFailedQuizForEveryTierCall() {
+        GroqAIService service = new GroqAIService("test-key",
+            new QuotaLedger(tempDir.resolve("ledger.json"), "test-key"), 0);
+
+        for (int i = 0; i < 50; i++) {
+            Quiz quiz = service.generateByDifficultyTiers(article(), 2);
+            assertFalse(quiz.isSuccess());
+            assertTrue(quiz.getErrorMessage().contains("Daily limit"), quiz.getErrorMessage());
+        }
+    }
+}
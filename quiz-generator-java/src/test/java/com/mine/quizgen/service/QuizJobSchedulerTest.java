@@ -0,0 +1,123 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.Article;
+import com.mine.quizgen.model.Quiz;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuizJobSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Records dispatch order and answers with 429 for the listed article ids, once each
+    private static class FakeAIService extends GroqAIService {
+        final List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> rateLimitOnce = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<String> callOptions = Collections.synchronizedList(new ArrayList<>());
+        long callMillis = 0;
+
+        FakeAIService(Path ledgerPath) {
+            super("test-key", new QuotaLedger(ledgerPath, "test-key"), 1000);
+        }
+
+        @Override
+        public Quiz generateFromArticleData(Article article, int maxRetries, boolean waitOnRateLimit) {
+            callOptions.add(maxRetries + "/" + waitOnRateLimit);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                dispatched.add(article.getId());
+                if (callMillis > 0) {
+                    Thread.sleep(callMillis);
+                }
+                Quiz quiz = new Quiz();
+                quiz.setArticleId(article.getId());
+                if (rateLimitOnce.remove(article.getId())) {
+                    quiz.setSuccess(false);
+                    quiz.setRateLimited(true);
+                    quiz.setErrorMessage("Rate limit exceeded");
+                }
+                return quiz;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private static Article article(String id) {
+        Article article = new Article();
+        article.setId(id);
+        return article;
+    }
+
+    @Test
+    public void dispatchesEarliestDeadlineThenPriorityThenSubmissionOrder() throws Exception {
+        FakeAIService service = new FakeAIService(tempDir.resolve("ledger.json"));
+        QuizJobScheduler scheduler = new QuizJobScheduler(service, 600, 1);
+        Instant now = Instant.now();
+
+        scheduler.submit(article("bulk-low"), 0);
+        scheduler.submit(article("bulk-high"), 5);
+        scheduler.submit(article("late-deadline"), 0, now.plusSeconds(120));
+        scheduler.submit(article("early-deadline-low"), 0, now.plusSeconds(60));
+        scheduler.submit(article("early-deadline-high"), 5, now.plusSeconds(60));
+        scheduler.submit(article("bulk-low-second"), 0);
+        scheduler.runUntilEmpty();
+
+        assertEquals(List.of("early-deadline-high", "early-deadline-low", "late-deadline",
+                             "bulk-high", "bulk-low", "bulk-low-second"), service.dispatched);
+    }
+
+    @Test
+    public void rateLimitedJobKeepsItsPlace() throws Exception {
+        FakeAIService service = new FakeAIService(tempDir.resolve("ledger.json"));
+        service.rateLimitOnce.add("b");
+        QuizJobScheduler scheduler = new QuizJobScheduler(service, 600, 1, 5, 10L);
+
+        scheduler.submit(article("a"), 0);
+        QuizJobScheduler.QuizJob retried = scheduler.submit(article("b"), 0);
+        scheduler.submit(article("c"), 0);
+        scheduler.runUntilEmpty();
+
+        // Re-queued ahead of "c", not at the back of the line
+        assertEquals(List.of("a", "b", "b", "c"), service.dispatched);
+        assertEquals(2, retried.getAttempts());
+        assertTrue(retried.getResult().get().isSuccess());
+        assertEquals(0, scheduler.getQueueSize());
+        // 429s are left to the scheduler; other errors still get the service's retries
+        assertEquals(List.of("2/false"), new ArrayList<>(new LinkedHashSet<>(service.callOptions)));
+        assertEquals(4, scheduler.getReport().get("dispatched"));
+        assertEquals(1, scheduler.getReport().get("rate_limited_requeues"));
+    }
+
+    @Test
+    public void dispatchesConcurrentlyUpToWorkerLimit() throws Exception {
+        FakeAIService service = new FakeAIService(tempDir.resolve("ledger.json"));
+        service.callMillis = 100;
+        QuizJobScheduler scheduler = new QuizJobScheduler(service, 600, 3);
+
+        List<QuizJobScheduler.QuizJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(scheduler.submit(article("art-" + i), 0));
+        }
+        long started = System.nanoTime();
+        scheduler.runUntilEmpty();
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(3, service.maxRunning.get());
+        assertTrue(elapsedMillis < 500, "took " + elapsedMillis + " ms");
+        for (QuizJobScheduler.QuizJob job : jobs) {
+            assertTrue(job.getResult().isDone());
+        }
+    }
+}
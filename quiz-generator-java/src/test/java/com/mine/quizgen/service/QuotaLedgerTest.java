@@ -0,0 +1,42 @@
+package com.mine.quizgen.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuotaLedgerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void enforcesDailyRequestLimitAcrossInstances() throws Exception {
+        Path ledgerPath = tempDir.resolve("ledger.json");
+        QuotaLedger first = new QuotaLedger(ledgerPath, "key");
+        QuotaLedger second = new QuotaLedger(ledgerPath, "key");
+
+        assertTrue(first.tryAcquireRequest("model-a", 2));
+        assertTrue(second.tryAcquireRequest("model-b", 2));
+        assertFalse(first.tryAcquireRequest("model-a", 2));
+
+        // Other keys have their own quota
+        assertTrue(new QuotaLedger(ledgerPath, "other-key").tryAcquireRequest("model-a", 2));
+        assertEquals(2L, first.getTodayTotals().get(QuotaLedger.REQUESTS).longValue());
+    }
+
+    @Test
+    public void enforcesDailyTokenLimit() throws Exception {
+        QuotaLedger ledger = new QuotaLedger(tempDir.resolve("ledger.json"), "key");
+
+        assertTrue(ledger.tryAcquireRequest("model-a", 10, 1000));
+        ledger.recordTokens("model-a", 600, 300);
+        assertTrue(ledger.tryAcquireRequest("model-a", 10, 1000));
+        ledger.recordTokens("model-a", 50, 50);
+
+        assertFalse(ledger.tryAcquireRequest("model-a", 10, 1000));
+        assertTrue(ledger.tryAcquireRequest("model-a", 10, 0));
+        assertEquals(3L, ledger.getTodayTotals().get(QuotaLedger.REQUESTS).longValue());
+    }
+}
@@ -0,0 +1,141 @@
+package com.mine.quizgen.service;
+
+import com.mine.quizgen.model.ShardManifest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ShardManager shardManager = new ShardManager();
+
+    @Test
+    public void parsesValidShardSpecs() {
+        assertArrayEquals(new int[]{0, 1}, ShardManager.parseShardSpec("0/1"));
+        assertArrayEquals(new int[]{2, 3}, ShardManager.parseShardSpec(" 2 / 3 "));
+    }
+
+    @Test
+    public void rejectsBadShardSpecs() {
+        for (String spec : new String[]{"3/3", "-1/2", "a/b", "1/0", "1", "1/2/3", "", null}) {
+            assertThrows(IllegalArgumentException.class, () -> ShardManager.parseShardSpec(spec), spec);
+        }
+    }
+
+    @Test
+    public void shardAssignmentIsStableAndPartitionsIds() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add("article-" + i);
+        }
+        // Fixed by CRC32, independent of JVM or run
+        assertEquals(ShardManager.shardOf("article-42", 7), ShardManager.shardOf("article-42", 7));
+
+        Set<String> covered = new HashSet<>();
+        int total = 0;
+        for (int shard = 0; shard < 4; shard++) {
+            List<String> selected = ShardManager.selectShard(ids, shard, 4);
+            assertFalse(selected.isEmpty());
+            for (String id : selected) {
+                assertEquals(shard, ShardManager.shardOf(id, 4));
+            }
+            covered.addAll(selected);
+            total += selected.size();
+        }
+        assertEquals(ids.size(), total);
+        assertEquals(new HashSet<>(ids), covered);
+    }
+
+    // Writes a shard run's manifest and a quiz file for each completed id
+    private String writeShard(String name, int shardIndex, int shardCount,
+                              List<String> assigned, List<String> completed, List<String> failed) throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve(name));
+        ShardManifest manifest = new ShardManifest();
+        manifest.setShardIndex(shardIndex);
+        manifest.setShardCount(shardCount);
+        manifest.setAssignedIds(new ArrayList<>(assigned));
+        for (String id : completed) {
+            String fileName = "quiz_" + id + "_groq.json";
+            Files.writeString(dir.resolve(fileName), "{\"article_id\":\"" + id + "\"}");
+            manifest.getCompleted().put(id, fileName);
+        }
+        manifest.setFailedIds(new ArrayList<>(failed));
+        shardManager.writeManifest(manifest, dir.toString());
+        return dir.toString();
+    }
+
+    private static List<String> idsInShard(int shard, int shardCount, int howMany) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; ids.size() < howMany; i++) {
+            if (ShardManager.shardOf("id-" + i, shardCount) == shard) {
+                ids.add("id-" + i);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void mergeOfCompleteShardsIsComplete() throws Exception {
+        List<String> shard0 = idsInShard(0, 2, 2);
+        List<String> shard1 = idsInShard(1, 2, 2);
+        String dir0 = writeShard("s0", 0, 2, shard0, shard0, List.of());
+        String dir1 = writeShard("s1", 1, 2, shard1, shard1, List.of());
+
+        Map<String, Object> report = shardManager.merge(List.of(dir0, dir1), null, tempDir.resolve("merged").toString());
+
+        assertEquals(Boolean.TRUE, report.get("complete"));
+        assertEquals(4, report.get("quizzes"));
+        assertTrue(Files.exists(tempDir.resolve("merged").resolve("merge_report.json")));
+    }
+
+    @Test
+    public void mergeReportsMissingShardsAndFailedIdsWithoutCorpus() throws Exception {
+        List<String> shard0 = idsInShard(0, 3, 2);
+        String dir0 = writeShard("s0", 0, 3, shard0, shard0.subList(0, 1), shard0.subList(1, 2));
+
+        Map<String, Object> report = shardManager.merge(List.of(dir0), null, tempDir.resolve("merged").toString());
+
+        assertEquals(Boolean.FALSE, report.get("complete"));
+        assertEquals(List.of("1/3", "2/3"), report.get("missing_shards"));
+        assertEquals(List.of(shard0.get(1)), report.get("failed_ids"));
+        assertEquals(List.of(shard0.get(1)), report.get("missing_ids"));
+    }
+
+    @Test
+    public void mergeReportsCorpusIdsNoShardCompleted() throws Exception {
+        List<String> shard0 = idsInShard(0, 1, 2);
+        String dir0 = writeShard("s0", 0, 1, shard0, shard0, List.of());
+        List<String> corpusIds = new ArrayList<>(shard0);
+        corpusIds.add("never-assigned");
+
+        Map<String, Object> report = shardManager.merge(List.of(dir0), corpusIds, tempDir.resolve("merged").toString());
+
+        assertEquals(List.of("never-assigned"), report.get("missing_ids"));
+        assertEquals(Boolean.FALSE, report.get("complete"));
+    }
+
+    @Test
+    public void mergeReportsDuplicateShardsAndIds() throws Exception {
+        List<String> shard0 = idsInShard(0, 2, 2);
+        List<String> shard1 = idsInShard(1, 2, 1);
+        String first = writeShard("s0", 0, 2, shard0, shard0, List.of());
+        String rerun = writeShard("s0-rerun", 0, 2, shard0, shard0.subList(0, 1), List.of());
+        String dir1 = writeShard("s1", 1, 2, shard1, shard1, List.of());
+
+        Map<String, Object> report = shardManager.merge(List.of(first, rerun, dir1), null,
+                                                        tempDir.resolve("merged").toString());
+
+        assertEquals(List.of("0/2"), report.get("duplicate_shards"));
+        assertEquals(List.of(shard0.get(0)), report.get("duplicate_ids"));
+        assertEquals(List.of(), report.get("missing_ids"));
+        assertEquals(3, report.get("quizzes"));
+        assertEquals(Boolean.FALSE, report.get("complete"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.mine.quizgen.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimilarityIndexTest {
+
+    private static final String STORY = "The city council approved a new budget on Tuesday that expands bus "
+        + "service, repairs three bridges and hires forty teachers for the coming school year.";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void findsNearDuplicateButNotUnrelatedText() {
+        SimilarityIndex index = new SimilarityIndex(tempDir.resolve("index.json").toString());
+        index.add("original", "quiz_original.json", STORY);
+
+        SimilarityIndex.Match match = index.findSimilar(STORY + " Reporting by staff.", 0.7, "repost");
+        assertNotNull(match);
+        assertEquals("original", match.getArticleId());
+        assertNull(index.findSimilar("A recipe for lemon cake with butter, sugar, eggs and flour.", 0.7, "other"));
+        assertNull(index.findSimilar(STORY, 0.7, "original"));
+    }
+
+    @Test
+    public void concurrentWritersKeepEachOthersEntries() throws Exception {
+        String path = tempDir.resolve("index.json").toString();
+        SimilarityIndex first = new SimilarityIndex(path);
+        SimilarityIndex second = new SimilarityIndex(path);
+
+        first.add("a", "quiz_a.json", STORY);
+        second.add("b", "quiz_b.json", "A recipe for lemon cake with butter, sugar, eggs and flour.");
+        first.save();
+        second.save();
+
+        assertEquals(2, new SimilarityIndex(path).size());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void replacesUnreadableIndexOnSave() throws Exception {
+        Path path = tempDir.resolve("index.json");
+        Files.writeString(path, "[{\"article_id\":\"a\",\"sig");
+
+        SimilarityIndex index = new SimilarityIndex(path.toString());
+        assertEquals(0, index.size());
+        index.add("a", "quiz_a.json", STORY);
+        index.save();
+
+        assertEquals(1, new SimilarityIndex(path.toString()).size());
+    }
+
+    @Test
+    public void inMemoryIndexMatchesWithoutTouchingDisk() {
+        SimilarityIndex index = SimilarityIndex.inMemory();
+        index.add("first", null, STORY);
+
+        assertEquals("first", index.findSimilar(STORY + " Reporting by staff.", 0.7, "second").getArticleId());
+        assertThrows(IllegalStateException.class, index::save);
+    }
+}